@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/*
+ *  Weighted A* (WA*) and anytime repairing A* (ARA*), for fast solutions that are allowed to be a bounded
+ *  amount longer than optimal. Nodes are ordered by g + w * h, which with w > 1 dives towards the goal and
+ *  finds a solution at most w times the optimal length.
+ *
+ *  ARA* starts with a large w, then lowers it step by step while its time budget lasts, reusing the previous
+ *  search: nodes whose g improved after they were expanded are set aside (INCONS) instead of being expanded
+ *  again, and come back into the open list when w changes. Every solution comes with the bound
+ *  min(w, g(goal) / lowest g + h still open), which reaches 1 once the solution is known to be optimal.
+ *  Weights are kept in hundredths so the keys stay integers for the OpenList.
+ *  Sources: Pohl, "Heuristic search viewed as path finding in a graph" (1970);
+ *  Likhachev, Gordon, Thrun, "ARA*: Anytime A* with Provable Bounds on Sub-Optimality" (2003)
+ */
+public final class AnytimeAStar {
+
+    // Weights are stored as hundredths
+    private static final int SCALE = 100;
+    // How much ARA* lowers the weight after every solution (0.2)
+    private static final int STEP = 20;
+    // Where a node is: generated but not queued, queued, expanded, or improved after being expanded
+    private static final byte NEW = 0;
+    private static final byte OPEN = 1;
+    private static final byte CLOSED = 2;
+    private static final byte INCONS = 3;
+
+    // Heuristic code (see PackedBoard)
+    private final int heuristic;
+    private final SearchContext context;
+    private final SearchMetrics metrics;
+    // One node per board, found through the index, and its status
+    private final NodePool nodes = new NodePool(1 << 10);
+    private final StateTable index = new StateTable(1 << 10);
+    private byte[] status = new byte[1 << 10];
+    private final OpenList open;
+    // Current weight in hundredths
+    private int weight;
+    // Node of the goal board once it's been reached, -1 before
+    private int goal = -1;
+
+    private AnytimeAStar(int heuristic, int weight, String openListKind, SearchContext context) {
+        this.heuristic = heuristic;
+        this.weight = weight;
+        this.context = context;
+        this.metrics = context.getMetrics();
+        this.open = OpenList.create(openListKind);
+    }
+
+    /*
+     *  Method to solve the puzzle with weighted A*
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param double: w >= 1, the solution is at most w times the optimal length
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param String: heap || bucket, the OpenList implementation ordering the nodes
+     *  @Param SearchContext: Node limit and counters of this solve, gets the suboptimality bound of the solution
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it wasn't solved
+     */
+    public static Board solveWeighted(String heuristic, double weight, Board current, String openListKind,
+                                      SearchContext context) {
+        return solve(heuristic, weight, 0, current, openListKind, context);
+    }
+
+    /*
+     *  Method to solve the puzzle with ARA*. The first solution is always waited for, the time budget only
+     *  limits how long it keeps improving afterwards
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param double: The starting weight, e.g. 2.5
+     *  @Param long: The time budget in milliseconds
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param SearchContext: Node limit and counters of this solve, gets the suboptimality bound of the solution
+     *  @Return Board: The best solved Board found in time, or current if it wasn't solved
+     */
+    public static Board solveAnytime(String heuristic, double weight, long millis, Board current,
+                                     SearchContext context) {
+        return solve(heuristic, weight, Math.max(1, millis), current, "heap", context);
+    }
+
+    /* Runs WA* (millis == 0, a single search) or ARA* */
+    private static Board solve(String heuristic, double weight, long millis, Board current, String openListKind,
+                               SearchContext context) {
+        if (!PackedBoard.isSolvable(current.getState())) return current;
+        long deadline = System.nanoTime() + millis * 1_000_000;
+
+        AnytimeAStar search = new AnytimeAStar(PackedBoard.heuristicCode(heuristic),
+                Math.max(SCALE, (int) Math.round(weight * SCALE)), openListKind, context);
+        int h = current.getHeuristic(heuristic);
+        search.metrics.heuristicCall();
+        search.add(current.getState(), 0, h, NodePool.ROOT, 0);
+
+        int[] best = null;
+        while (search.improvePath(best == null ? Long.MAX_VALUE : deadline)) {
+            best = search.path(search.goal);
+            double bound = search.bound();
+            context.setBound(bound);
+            if (millis == 0 || bound <= 1 || System.nanoTime() > deadline) break;
+            search.lowerWeight();
+        }
+
+        if (best == null) {
+            // Same convention as A*: push the count over the limit so printOutput reports it (unless it was stopped)
+            if (!context.exceededMaxNodes() && !context.isStopped()) context.visitNodes(context.getMaxNodes() + 1 - context.getNodesVisited());
+            return current;
+        }
+        context.setFound(true);
+        return current.applyMoves(best, best.length);
+    }
+
+    /* The key a node is queued with, g + w * h scaled to hundredths */
+    private int key(int node) {
+        return nodes.g(node) * SCALE + weight * nodes.estimate(node);
+    }
+
+    /* Adds a new node and queues it */
+    private int add(long state, int cost, int h, int parent, int direction) {
+        int node = nodes.add(state, cost, h, parent, direction);
+        index.put(state, node);
+        if (node == status.length) status = Arrays.copyOf(status, node * 2);
+        status[node] = OPEN;
+        open.add(node, key(node), cost);
+        if (state == PackedBoard.GOAL) goal = node;
+        return node;
+    }
+
+    /*
+     *  Expands nodes by key until none can lead to a better solution than the current goal
+     *  @Param long: System.nanoTime() after which it gives up
+     *  @Return boolean: Whether the goal was reached (false if it ran out of time, nodes or boards, or was stopped)
+     */
+    private boolean improvePath(long deadline) {
+        while (!open.isEmpty()) {
+            // Stale entries only ever have larger keys than the real ones, so peekF never overestimates
+            if (goal >= 0 && key(goal) <= open.peekF()) return true;
+
+            int f = open.peekF();
+            int node = open.poll();
+            // Skip entries left behind by a lower g or an older weight
+            if (status[node] != OPEN || key(node) != f) {
+                metrics.duplicate();
+                continue;
+            }
+            status[node] = CLOSED;
+            context.visitNode();
+            metrics.observeClosed(index.size());
+            if (index.size() > context.getMaxNodes() || System.nanoTime() > deadline || context.shouldStop()) return false;
+
+            metrics.expanded();
+            long state = nodes.state(node);
+            int cost = nodes.g(node) + 1;
+            for (int direction = 0; direction < 4; direction++) {
+                long child = PackedBoard.move(state, direction);
+                if (child == PackedBoard.INVALID) continue;
+                metrics.generated();
+
+                int known = index.get(child);
+                if (known == StateTable.MISSING) {
+                    metrics.heuristicCall();
+                    add(child, cost, nodes.estimate(node) + PackedBoard.heuristicDelta(heuristic, state, direction),
+                            node, direction);
+                    continue;
+                }
+                if (nodes.g(known) <= cost) {
+                    metrics.duplicate();
+                    continue;
+                }
+
+                // A cheaper path to a known board, expanded ones wait for the next weight
+                nodes.relink(known, cost, node, direction);
+                if (status[known] == CLOSED || status[known] == INCONS) {
+                    status[known] = INCONS;
+                } else {
+                    status[known] = OPEN;
+                    open.add(known, key(known), cost);
+                }
+            }
+            metrics.observeOpen(open.size());
+        }
+        return goal >= 0;
+    }
+
+    /*
+     *  Moves from the root to a node. Unlike NodePool.path this can't trust g as the length: when a node set
+     *  aside as INCONS gets a lower g, its descendants keep theirs until it's expanded again. A node's g is
+     *  always above its parent's though, so the chain has no loops and is at most g long
+     */
+    private int[] path(int node) {
+        int length = 0;
+        for (int at = node; nodes.parent(at) != NodePool.ROOT; at = nodes.parent(at)) {
+            length++;
+        }
+        int[] moves = new int[length];
+        for (int at = node; nodes.parent(at) != NodePool.ROOT; at = nodes.parent(at)) {
+            moves[--length] = nodes.move(at);
+        }
+        return moves;
+    }
+
+    /* min(w, g(goal) / lowest g + h among the nodes that might still improve it), 1 once nothing can */
+    private double bound() {
+        int lowest = Integer.MAX_VALUE;
+        for (int node = 0; node < nodes.size(); node++) {
+            if (status[node] == OPEN || status[node] == INCONS) {
+                lowest = Math.min(lowest, nodes.g(node) + nodes.estimate(node));
+            }
+        }
+        // The goal itself is still open, so lowest is at most g(goal) and only 0 / 0 needs care
+        double proven = nodes.g(goal) == 0 ? 1 : Math.max(1, (double) nodes.g(goal) / lowest);
+        return Math.min((double) weight / SCALE, proven);
+    }
+
+    /* Lowers the weight and starts the next search: INCONS nodes are queued again and nothing is expanded */
+    private void lowerWeight() {
+        weight = Math.max(SCALE, weight - STEP);
+        open.clear();
+        for (int node = 0; node < nodes.size(); node++) {
+            if (status[node] == OPEN || status[node] == INCONS) {
+                status[node] = OPEN;
+                open.add(node, key(node), nodes.g(node));
+            } else {
+                status[node] = NEW;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ *  Batch mode: solves every board in a file on a pool of worker threads and writes one line per board, in input order.
+ *  The file is streamed, and only a bounded window of solves is in flight at once, so memory doesn't grow with the file.
+ *  Each solve gets its own Board and SearchContext, nothing is shared between workers.
+ */
+public final class BatchSolver {
+
+    // Solves that may be queued ahead of the oldest unwritten one, per worker thread
+    private static final int WINDOW_PER_THREAD = 64;
+
+    private BatchSolver() {
+    }
+
+    /*
+     *  Solves every board in a file
+     *  @Param Path: File with one board per line, e.g. "b12 345 678" (blank lines are skipped)
+     *  @Param String[]: The solve command used for every board, e.g. {"solve", "A-star", "h2"}
+     *  @Param int: Node limit of every solve
+     *  @Param int: Number of worker threads
+     *  @Param PrintStream: Where the result lines go
+     */
+    public static void run(Path file, String[] command, int maxNodes, int threads, PrintStream out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        int limit = threads * WINDOW_PER_THREAD;
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int index = 1;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                // Write the oldest result before queueing more, this keeps both memory and output order in check
+                if (window.size() == limit) out.println(await(window.poll()));
+
+                String sequence = line.trim();
+                int number = index++;
+                window.add(pool.submit(() -> solveLine(number, sequence, command, maxNodes)));
+            }
+
+            while (!window.isEmpty()) {
+                out.println(await(window.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     *  Solves one board of the batch
+     *  @Return String: The result line, e.g. "3: 1b2 345 678 -> 1 move: LEFT"
+     */
+    public static String solveLine(int number, String sequence, String[] command, int maxNodes) {
+        Board start = new Board();
+        start.setState(sequence);
+
+        SearchContext context = new SearchContext(maxNodes);
+        Board result = PackedBoard.isSolvable(start.getState()) ? Main.solve(command, start, context) : start;
+        return resultLine(number + ": " + sequence + " -> ", start, result, context);
+    }
+
+    /*
+     *  Formats the outcome of one solve as a single line, shared with the quiet mode of Main
+     *  @Param String: Start of the line, e.g. "3: 1b2 345 678 -> "
+     *  @Param Board: The board that was solved
+     *  @Param Board: What the solver returned
+     *  @Param SearchContext: The context of the solve
+     *  @Return String: The result line
+     */
+    public static String resultLine(String prefix, Board start, Board result, SearchContext context) {
+        if (!PackedBoard.isSolvable(start.getState())) return prefix + "unsolvable";
+
+        if (result == null || result.getState() != PackedBoard.GOAL) {
+            return prefix + Main.failure(context);
+        }
+
+        return movesLine(prefix, Main.getMoves(start, result));
+    }
+
+    /* The end of a result line for a solved board, e.g. "1 move: LEFT" or "already solved" */
+    public static String movesLine(String prefix, List<String> moves) {
+        if (moves.isEmpty()) return prefix + "already solved";
+        return prefix + moves.size() + (moves.size() == 1 ? " move: " : " moves: ")
+                + String.join(", ", moves).toUpperCase();
+    }
+
+    /* Waits for a solve, turning a crash into its result line so one bad board doesn't stop the batch */
+    private static String await(Future<String> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            return "error: " + e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "error: interrupted";
+        }
+    }
+}
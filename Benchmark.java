@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ *  Benchmark suite for move generation, heuristic evaluation and end-to-end solves.
+ *  Run with "java Benchmark [filter] [--csv file]", the filter keeps only benchmarks whose name contains it.
+ *
+ *  Every benchmark is warmed up, then measured over several timed rounds, and reports time per operation,
+ *  bytes allocated per operation (on the calling thread) and, for solves, nodes expanded per board and per second.
+ *  Solves run over a fixed, seeded corpus of boards bucketed by their optimal depth (from DistanceOracle),
+ *  so numbers are comparable between runs and deep puzzles don't hide behind shallow ones.
+ *
+ *  This is a plain main class instead of a JMH module because JMH refuses benchmark classes in the default package,
+ *  which is where all of the puzzle code lives. The harness follows the same warmup / measure / blackhole approach.
+ */
+public final class Benchmark {
+
+    // Rounds per benchmark and the minimum length of one round
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final long ROUND_NANOS = 200_000_000L;
+    // Seed of the corpus, boards per bucket and the bucket boundaries (optimal depth, inclusive)
+    private static final long SEED = 291;
+    private static final int BOARDS_PER_BUCKET = 20;
+    private static final int[][] BUCKETS = {{4, 8}, {12, 16}, {18, 22}, {24, 27}, {28, 31}};
+
+    // Results are folded in here so the JIT can't drop the measured work
+    private static volatile long blackhole;
+
+    /* Something to measure, returns the number of search nodes it expanded (0 if it isn't a search) */
+    @FunctionalInterface
+    private interface Body {
+        long run();
+    }
+
+    /* One row of the report */
+    private record Result(String name, double nanosPerOp, double bytesPerOp, double nodesPerOp, double nodesPerSecond) {
+    }
+
+    private final String filter;
+    private final List<Result> results = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Benchmark(String filter) {
+        this.filter = filter;
+    }
+
+    /* Main method, see the class comment for the arguments */
+    public static void main(String[] args) throws IOException {
+        String filter = "";
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--csv") && i + 1 < args.length) csv = Path.of(args[++i]);
+            else filter = args[i];
+        }
+
+        Benchmark benchmark = new Benchmark(filter);
+        long[][] corpus = corpus();
+        long[] all = flatten(corpus);
+
+        System.out.printf("%-40s %14s %12s %12s %14s%n", "Benchmark", "ns/op", "B/op", "nodes/op", "nodes/s");
+        benchmark.micro(all);
+        benchmark.solves(corpus);
+
+        if (csv != null) benchmark.writeCsv(csv);
+    }
+
+    /* Move generation and heuristic evaluation, one operation = one board (or one move) */
+    private void micro(long[] boards) {
+        measure("move.packed", boards.length * 4, () -> {
+            long sum = 0;
+            for (long state : boards) {
+                for (int direction = 0; direction < 4; direction++) {
+                    sum += PackedBoard.move(state, direction);
+                }
+            }
+            blackhole = sum;
+            return 0;
+        });
+        Board[] objects = new Board[boards.length];
+        for (int i = 0; i < boards.length; i++) {
+            objects[i] = new Board(boards[i]);
+        }
+        measure("move.board", boards.length * 4, () -> {
+            long sum = 0;
+            for (Board board : objects) {
+                for (String direction : PackedBoard.DIRECTIONS) {
+                    if (board.validMove(direction)) sum += board.move(direction).getState();
+                }
+            }
+            blackhole = sum;
+            return 0;
+        });
+        measure("heuristic.h1", boards.length, () -> heuristic(boards, PackedBoard.H1));
+        measure("heuristic.h2", boards.length, () -> heuristic(boards, PackedBoard.H2));
+        measure("heuristic.h3", boards.length, () -> heuristic(boards, PackedBoard.H3));
+        measure("heuristic.h4", boards.length, () -> heuristic(boards, PackedBoard.H4));
+        measure("heuristic.h5", boards.length, () -> heuristic(boards, PackedBoard.H5));
+        measure("heuristic.h2.delta", boards.length * 4, () -> {
+            long sum = 0;
+            for (long state : boards) {
+                for (int direction = 0; direction < 4; direction++) {
+                    if (PackedBoard.canMove(state, direction)) {
+                        sum += PackedBoard.heuristicDelta(PackedBoard.H2, state, direction);
+                    }
+                }
+            }
+            blackhole = sum;
+            return 0;
+        });
+    }
+
+    /* End-to-end solves of every bucket, one operation = one board solved */
+    private void solves(long[][] corpus) {
+        String[][] solvers = {
+                {"solve", "A-star", "h2"},
+                {"solve", "A-star", "h2", "bucket"},
+                {"solve", "A-star", "h3", "bucket"},
+                {"solve", "A-star", "h4", "bucket"},
+                {"solve", "A-star", "h5", "bucket"},
+                {"solve", "EPEA-star", "h2", "bucket"},
+                {"solve", "EPEA-star", "h4", "bucket"},
+                {"solve", "IDA-star", "h2"},
+                {"solve", "IDA-star", "h3"},
+                {"solve", "IDA-star", "h4"},
+                {"solve", "IDA-star", "h5"},
+                {"solve", "SMA-star", "h2", "1000"},
+                {"solve", "WA-star", "2", "h2"},
+                {"solve", "HDA-star", "h2"},
+                {"solve", "bidirectional", "bfs"},
+                {"solve", "bidirectional", "h2"},
+                {"solve", "oracle"},
+                {"solve", "beam", "5"},
+        };
+
+        for (String[] solver : solvers) {
+            for (int b = 0; b < corpus.length; b++) {
+                long[] bucket = corpus[b];
+                String name = "solve." + String.join(".", solver).substring(6)
+                        + ".d" + BUCKETS[b][0] + "-" + BUCKETS[b][1];
+                measure(name, bucket.length, () -> {
+                    long nodes = 0;
+                    for (long state : bucket) {
+                        SearchContext context = new SearchContext(Integer.MAX_VALUE - 1);
+                        Board result = Main.solve(solver, new Board(state), context);
+                        blackhole = result.getState();
+                        nodes += context.getMetrics().getNodesExpanded();
+                    }
+                    return nodes;
+                });
+            }
+        }
+    }
+
+    /* Sum of a heuristic over the boards */
+    private static long heuristic(long[] boards, int code) {
+        long sum = 0;
+        for (long state : boards) {
+            sum += PackedBoard.heuristic(code, state);
+        }
+        blackhole = sum;
+        return 0;
+    }
+
+    /*
+     *  Warms up and measures one benchmark, then prints its row
+     *  @Param String: The benchmark name
+     *  @Param int: Operations done by one call of the body
+     *  @Param Body: The measured code
+     */
+    private void measure(String name, int opsPerCall, Body body) {
+        if (!name.contains(filter)) return;
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            round(body);
+        }
+
+        long nanos = 0;
+        long bytes = 0;
+        long calls = 0;
+        long nodes = 0;
+        for (int round = 0; round < MEASURE_ROUNDS; round++) {
+            long[] r = round(body);
+            nanos += r[0];
+            bytes += r[1];
+            calls += r[2];
+            nodes += r[3];
+        }
+
+        double ops = (double) calls * opsPerCall;
+        Result result = new Result(name, nanos / ops, bytes / ops, nodes / ops, nodes == 0 ? 0 : nodes * 1e9 / nanos);
+        results.add(result);
+        System.out.printf("%-40s %14.1f %12.1f %12s %14s%n", name, result.nanosPerOp(), result.bytesPerOp(),
+                nodes == 0 ? "-" : String.format("%.1f", result.nodesPerOp()),
+                nodes == 0 ? "-" : String.format("%.0f", result.nodesPerSecond()));
+    }
+
+    /* Calls the body until a round's worth of time passed, returns {nanos, bytes allocated, calls, nodes} */
+    private long[] round(Body body) {
+        long calls = 0;
+        long nodes = 0;
+        long bytesBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            nodes += body.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        long bytes = threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+        return new long[]{elapsed, bytes, calls, nodes};
+    }
+
+    /* Writes every result as one CSV line */
+    private void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("benchmark,ns_per_op,bytes_per_op,nodes_per_op,nodes_per_second");
+            for (Result r : results) {
+                out.printf("%s,%.1f,%.1f,%.1f,%.0f%n", r.name(), r.nanosPerOp(), r.bytesPerOp(), r.nodesPerOp(),
+                        r.nodesPerSecond());
+            }
+        }
+    }
+
+    /* Draws BOARDS_PER_BUCKET uniformly random boards per depth bucket, always the same ones for the same seed */
+    private static long[][] corpus() {
+        InstanceGenerator generator = new InstanceGenerator(SEED);
+        DistanceOracle oracle = DistanceOracle.get();
+        long[][] corpus = new long[BUCKETS.length][BOARDS_PER_BUCKET];
+        int[] filled = new int[BUCKETS.length];
+        int remaining = BUCKETS.length * BOARDS_PER_BUCKET;
+
+        while (remaining > 0) {
+            long state = generator.next();
+            int depth = oracle.distance(state);
+            for (int b = 0; b < BUCKETS.length; b++) {
+                if (depth >= BUCKETS[b][0] && depth <= BUCKETS[b][1] && filled[b] < BOARDS_PER_BUCKET) {
+                    corpus[b][filled[b]++] = state;
+                    remaining--;
+                }
+            }
+        }
+        return corpus;
+    }
+
+    /* All boards of the corpus in one array */
+    private static long[] flatten(long[][] corpus) {
+        List<Long> boards = new ArrayList<>();
+        for (long[] bucket : corpus) {
+            for (long state : bucket) boards.add(state);
+        }
+        return boards.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/*
+ *  Bidirectional search, expanding forward from the board and backward from the goal until the two meet.
+ *  Each side keeps its nodes in a NodePool and a StateTable from packed board to node index, so a child
+ *  generated on one side is checked against the other side with one table lookup.
+ *
+ *  With "bfs" both sides are breadth first. With h1/h2 it's front-to-end bidirectional A*: the forward side
+ *  estimates the distance to the goal and the backward side the distance to the start board.
+ *  The best meeting cost mu is kept, and the search stops once mu <= max(fmin forward, fmin backward)
+ *  or mu <= gmin forward + gmin backward + 1 (the second test is what lets bfs stop around half depth).
+ *  Sources: Pohl, "Bi-directional Search" (1971); Holte et al., "MM: Bidirectional Search That Is Guaranteed to Meet in the Middle" (2016)
+ */
+public final class BidirectionalSearch {
+
+    /* One direction of the search */
+    private static final class Side {
+        // Estimate towards the other end, null for breadth first
+        private final int[][] table;
+        private final NodePool nodes = new NodePool(256);
+        // Packed board -> node index
+        private final StateTable index = new StateTable(1 << 10);
+        private final OpenList open = new HeapOpenList();
+
+        Side(int[][] table) {
+            this.table = table;
+        }
+
+        /* Estimate of a board's distance to the other end */
+        int estimate(long state) {
+            return table == null ? 0 : PackedBoard.sum(table, state);
+        }
+
+        /* Adds a node (or improves the g of an existing one) and queues it */
+        void push(long state, int cost, int from, int direction) {
+            int node = index.get(state);
+            int h = estimate(state);
+            if (node == StateTable.MISSING) {
+                node = nodes.add(state, cost, h, from, direction);
+                index.put(state, node);
+            } else {
+                nodes.relink(node, cost, from, direction);
+            }
+            open.add(node, cost + h, cost);
+        }
+    }
+
+    private BidirectionalSearch() {
+    }
+
+    /*
+     *  Method to solve the puzzle with bidirectional search
+     *  @Param String: bfs || h1 || h2, breadth first or the front-to-end heuristic (h3 to h5 only know the goal, so they get h2)
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param SearchContext: Node limit and counters of this solve
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it wasn't solved
+     */
+    public static Board solve(String heuristic, Board current, SearchContext context) {
+        long start = current.getState();
+        if (!PackedBoard.isSolvable(start)) return current;
+        if (start == PackedBoard.GOAL) {
+            context.setFound(true);
+            return current;
+        }
+
+        boolean blind = heuristic.equals("bfs");
+        int code = PackedBoard.heuristicCode(heuristic) == PackedBoard.H1 ? PackedBoard.H1 : PackedBoard.H2;
+        Side forward = new Side(blind ? null : PackedBoard.heuristicTable(code, PackedBoard.GOAL));
+        Side backward = new Side(blind ? null : PackedBoard.heuristicTable(code, start));
+        forward.push(start, 0, NodePool.ROOT, 0);
+        backward.push(PackedBoard.GOAL, 0, NodePool.ROOT, 0);
+
+        SearchMetrics metrics = context.getMetrics();
+        // The two roots
+        if (!blind) {
+            metrics.heuristicCall();
+            metrics.heuristicCall();
+        }
+
+        // Best meeting found so far: its cost and the node on each side
+        int mu = Integer.MAX_VALUE;
+        int meetForward = -1;
+        int meetBackward = -1;
+
+        while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+            int fMin = Math.max(forward.open.peekF(), backward.open.peekF());
+            if (mu <= fMin) break;
+            // Without a heuristic f is g, so the lowest f of each side is also its lowest g
+            if (blind && mu <= forward.open.peekF() + backward.open.peekF() + 1) break;
+
+            if (forward.nodes.size() + backward.nodes.size() > context.getMaxNodes()) {
+                context.visitNodes(context.getMaxNodes() + 1 - context.getNodesVisited());
+                return current;
+            }
+            if (context.shouldStop()) return current;
+
+            // Expand the side with the smaller frontier
+            boolean isForward = forward.open.size() <= backward.open.size();
+            Side side = isForward ? forward : backward;
+            Side other = isForward ? backward : forward;
+
+            int node = side.open.poll();
+            long state = side.nodes.state(node);
+            int cost = side.nodes.g(node);
+            context.visitNode();
+            metrics.expanded();
+
+            for (int direction = 0; direction < 4; direction++) {
+                long child = PackedBoard.move(state, direction);
+                if (child == PackedBoard.INVALID) continue;
+                metrics.generated();
+
+                int known = side.index.get(child);
+                if (known != StateTable.MISSING && side.nodes.g(known) <= cost + 1) {
+                    metrics.duplicate();
+                    continue;
+                }
+                side.push(child, cost + 1, node, direction);
+                if (!blind) metrics.heuristicCall();
+
+                // Did the two searches meet?
+                int meet = other.index.get(child);
+                if (meet != StateTable.MISSING && cost + 1 + other.nodes.g(meet) < mu) {
+                    mu = cost + 1 + other.nodes.g(meet);
+                    meetForward = isForward ? side.index.get(child) : meet;
+                    meetBackward = isForward ? meet : side.index.get(child);
+                }
+            }
+            metrics.observeOpen(forward.open.size() + backward.open.size());
+            metrics.observeClosed(forward.nodes.size() + backward.nodes.size());
+        }
+
+        if (meetForward < 0) return current;
+        context.setFound(true);
+
+        // Splice: forward moves from the start to the meeting board, then the backward moves undone in reverse
+        int[] moves = Arrays.copyOf(forward.nodes.path(meetForward), mu);
+        int length = forward.nodes.g(meetForward);
+        for (int node = meetBackward; backward.nodes.parent(node) != NodePool.ROOT; node = backward.nodes.parent(node)) {
+            moves[length++] = PackedBoard.opposite(backward.nodes.move(node));
+        }
+
+        return current.applyMoves(moves, length);
+    }
+}
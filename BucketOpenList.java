@@ -0,0 +1,88 @@
+import java.util.Arrays;
+
+/*
+ *  Bucketed open list for integer f values, which are small for the 8-puzzle (at most 31 moves plus h).
+ *  Nodes sit in a stack per (f, g) pair, add is O(1) and poll is amortized O(1) since the cursors
+ *  over f and g only move past empty buckets. Stacks make ties LIFO, and within an f the deepest g goes first.
+ */
+public final class BucketOpenList implements OpenList {
+
+    // stacks[f][g] holds the nodes queued with that f and g, sizes[f][g] how many there are
+    private int[][][] stacks = new int[64][][];
+    private int[][] sizes = new int[64][];
+    // Number of nodes per f, and the highest g that might be non-empty per f
+    private int[] counts = new int[64];
+    private int[] maxG = new int[64];
+    // Lowest f that might be non-empty
+    private int minF = Integer.MAX_VALUE;
+    private int size;
+
+    @Override
+    public void add(int node, int f, int g) {
+        if (f >= stacks.length) {
+            int length = Math.max(f + 1, stacks.length * 2);
+            stacks = Arrays.copyOf(stacks, length);
+            sizes = Arrays.copyOf(sizes, length);
+            counts = Arrays.copyOf(counts, length);
+            maxG = Arrays.copyOf(maxG, length);
+        }
+
+        // Buckets for an f are only created once something is queued with it
+        if (stacks[f] == null || g >= stacks[f].length) {
+            int length = Math.max(g + 1, stacks[f] == null ? 32 : stacks[f].length * 2);
+            stacks[f] = stacks[f] == null ? new int[length][] : Arrays.copyOf(stacks[f], length);
+            sizes[f] = sizes[f] == null ? new int[length] : Arrays.copyOf(sizes[f], length);
+        }
+
+        int[] stack = stacks[f][g];
+        int count = sizes[f][g];
+        if (stack == null) {
+            stack = stacks[f][g] = new int[16];
+        } else if (count == stack.length) {
+            stack = stacks[f][g] = Arrays.copyOf(stack, count * 2);
+        }
+        stack[count] = node;
+        sizes[f][g] = count + 1;
+
+        if (counts[f]++ == 0 || g > maxG[f]) maxG[f] = g;
+        if (f < minF) minF = f;
+        size++;
+    }
+
+    @Override
+    public int poll() {
+        // Move the cursors past the empty buckets
+        while (counts[minF] == 0) minF++;
+        int f = minF;
+        int g = maxG[f];
+        while (sizes[f][g] == 0) g--;
+        maxG[f] = g;
+
+        counts[f]--;
+        size--;
+        return stacks[f][g][--sizes[f][g]];
+    }
+
+    @Override
+    public int peekF() {
+        if (size == 0) return Integer.MAX_VALUE;
+        while (counts[minF] == 0) minF++;
+        return minF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int f = 0; f < counts.length; f++) {
+            if (counts[f] == 0) continue;
+            Arrays.fill(sizes[f], 0);
+            counts[f] = 0;
+        }
+        minF = Integer.MAX_VALUE;
+        size = 0;
+    }
+}
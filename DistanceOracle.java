@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ *  Exact distance of every solvable board to the goal, found by one complete BFS backwards from "b12 345 678".
+ *  Distances are stored one byte per board, indexed by PackedBoard.rank(), and saved to a file that later runs
+ *  memory map. Solving is then a greedy walk: from any board, some neighbor is exactly one move closer.
+ */
+public final class DistanceOracle {
+
+    // File the distances are saved in (working directory)
+    public static final String FILE = "oracle8.bin";
+    // Written at the start of the file, so a stale or foreign file gets rebuilt instead of read
+    private static final int MAGIC = 0x4F524338;
+
+    // distances.get(rank) is the optimal number of moves for that board
+    private final ByteBuffer distances;
+
+    private DistanceOracle(ByteBuffer distances) {
+        this.distances = distances;
+    }
+
+    /* Get the shared oracle, loading (or building and saving) it on first use */
+    public static DistanceOracle get() {
+        return Holder.INSTANCE;
+    }
+
+    /* Lazy holder, the JVM makes the first get() load the table exactly once even with several threads */
+    private static final class Holder {
+        private static final DistanceOracle INSTANCE = load(Path.of(FILE));
+    }
+
+    /* Get the optimal number of moves to solve a (solvable) board */
+    public int distance(long state) {
+        return distances.get(PackedBoard.rank(state));
+    }
+
+    /* Get the optimal number of moves of the board with a given PackedBoard.rank() */
+    public int distanceAt(int rank) {
+        return distances.get(rank);
+    }
+
+    /*
+     *  Method to solve the puzzle by walking downhill in the distance table, O(depth)
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param SearchContext: Counters of this solve, every table lookup counts as a heuristic call
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it can't be solved
+     */
+    public static Board solve(Board current, SearchContext context) {
+        long state = current.getState();
+        if (!PackedBoard.isSolvable(state)) return current;
+
+        SearchMetrics metrics = context.getMetrics();
+        DistanceOracle oracle = get();
+        int depth = oracle.distance(state);
+        int[] moves = new int[depth];
+        metrics.heuristicCall();
+
+        for (int i = 0; i < depth; i++) {
+            metrics.expanded();
+            // One of the neighbors is always exactly one move closer
+            for (int direction = 0; direction < 4; direction++) {
+                long child = PackedBoard.move(state, direction);
+                if (child == PackedBoard.INVALID) continue;
+                metrics.generated();
+                metrics.heuristicCall();
+                if (oracle.distance(child) == depth - i - 1) {
+                    moves[i] = direction;
+                    state = child;
+                    break;
+                }
+            }
+        }
+
+        context.setFound(true);
+        return current.applyMoves(moves, depth);
+    }
+
+    /*
+     *  Maps the table from a file, building and writing the file first if it's missing or not an oracle table
+     *  @Param Path: The table file
+     *  @Return DistanceOracle: The loaded oracle (kept in memory if the file can't be written)
+     */
+    public static DistanceOracle load(Path file) {
+        try {
+            if (Files.exists(file) && Files.size(file) == 4 + PackedBoard.STATES) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (mapped.getInt(0) == MAGIC) {
+                        // Skip past the magic number so index 0 is the first board
+                        return new DistanceOracle(mapped.position(4).slice());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ", rebuilding the distance table");
+        }
+
+        byte[] built = build();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(4).putInt(MAGIC).flip());
+            channel.write(ByteBuffer.wrap(built));
+        } catch (IOException e) {
+            System.err.println("Could not save the distance table to " + file);
+        }
+        return new DistanceOracle(ByteBuffer.wrap(built));
+    }
+
+    /* Breadth first search over all 181,440 boards from the goal, the queue is a flat array of packed boards */
+    private static byte[] build() {
+        byte[] distance = new byte[PackedBoard.STATES];
+        boolean[] seen = new boolean[PackedBoard.STATES];
+        long[] queue = new long[PackedBoard.STATES];
+        int head = 0;
+        int tail = 0;
+
+        queue[tail++] = PackedBoard.GOAL;
+        seen[PackedBoard.rank(PackedBoard.GOAL)] = true;
+
+        while (head < tail) {
+            long state = queue[head++];
+            byte next = (byte) (distance[PackedBoard.rank(state)] + 1);
+            for (int direction = 0; direction < 4; direction++) {
+                long child = PackedBoard.move(state, direction);
+                if (child == PackedBoard.INVALID) continue;
+                int rank = PackedBoard.rank(child);
+                if (seen[rank]) continue;
+                seen[rank] = true;
+                distance[rank] = next;
+                queue[tail++] = child;
+            }
+        }
+
+        return distance;
+    }
+}
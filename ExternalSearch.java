@@ -0,0 +1,443 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ *  Breadth first search that keeps its layers on disk instead of in a closed table, for searches bigger than memory.
+ *  Every layer is a file of Grid boards (lo, hi, 16 bytes) sorted as unsigned 128 bit numbers. The next layer is
+ *  made by streaming the current one and generating every child: children are sorted in chunks that fit in memory
+ *  and written as sorted runs, then all runs are merged into one sorted stream. A child is either new or already in
+ *  the layer being expanded or the one before it (sliding puzzles never hit the first, every move flips the parity of
+ *  the blank's cell, but checking costs one more sequential read). So duplicates are dropped while merging, against
+ *  the runs themselves and those two layer files, read alongside in order ("delayed duplicate detection").
+ *  Memory stays at one chunk of children plus an I/O buffer per open file.
+ *
+ *  distribution() runs it from the goal to the end, counting the boards of every depth. solve() runs it from a
+ *  board until the goal shows up, keeping every layer, then walks back: some neighbor of a board in layer d is in
+ *  layer d - 1, found by binary search with positional reads on that layer's file.
+ *  Sources: Korf, "Delayed Duplicate Detection: Extended Abstract" (2003);
+ *  Korf, Schultze, "Large-Scale Parallel Breadth-First Search" (2005)
+ */
+public final class ExternalSearch {
+
+    // Bytes per board in the files
+    private static final int RECORD = 16;
+    // Bytes buffered per open file
+    private static final int IO_BUFFER = 1 << 16;
+    // Boards sorted in memory at once by default (16 MB)
+    public static final int CHUNK = 1 << 20;
+
+    private final Grid grid;
+    private final Path directory;
+    private final int chunk;
+    private final SearchContext context;
+    private final SearchMetrics metrics;
+    // Children of the layer being expanded, before they are sorted into a run
+    private final long[] childLows;
+    private final long[] childHighs;
+
+    private ExternalSearch(Grid grid, Path directory, int chunk, SearchContext context) {
+        this.grid = grid;
+        this.directory = directory;
+        this.chunk = chunk;
+        this.context = context;
+        this.metrics = context.getMetrics();
+        childLows = new long[chunk];
+        childHighs = new long[chunk];
+    }
+
+    /*
+     *  Solves a board with the layers kept in files
+     *  @Param GridBoard: The board to solve
+     *  @Param Path: Directory to make the files' own subdirectory in, null for the system's temporary directory
+     *  @Param SearchContext: Counters and time limit of this solve, the node limit isn't used since nodes live on disk
+     *  @Return int[]: The direction codes of an optimal solution, or null if it wasn't solved
+     */
+    public static int[] solve(GridBoard start, Path directory, SearchContext context) {
+        if (!start.isSolvable()) return null;
+        if (start.isSolved()) {
+            context.setFound(true);
+            return new int[0];
+        }
+
+        Path files = workDirectory(directory);
+        try {
+            ExternalSearch search = new ExternalSearch(start.getGrid(), files, CHUNK, context);
+            search.writeRoot(start.getLo(), start.getHi());
+            for (int depth = 0; ; depth++) {
+                long count = search.expand(depth, false);
+                if (count < 0) {
+                    context.setFound(true);
+                    return search.path(depth + 1);
+                }
+                if (count == 0 || context.isStopped()) return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteAll(files);
+        }
+    }
+
+    /*
+     *  Same as above for a 3x3 Board, repacked as a Grid board (the direction codes are the same)
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it wasn't solved
+     */
+    public static Board solve(Board current, Path directory, SearchContext context) {
+        Grid grid = new Grid(3, 3);
+        long lo = 0;
+        long hi = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int tile = PackedBoard.tileAt(current.getState(), cell);
+            lo |= Grid.loBits(tile, cell);
+            hi |= Grid.hiBits(tile, cell);
+        }
+        int[] moves = solve(new GridBoard(grid, lo, hi), directory, context);
+        return moves == null ? current : current.applyMoves(moves, moves.length);
+    }
+
+    /*
+     *  Counts the boards at every distance from the goal, over the whole state space of a size
+     *  @Param Grid: The size
+     *  @Param Path: Directory to make the files' own subdirectory in, null for the system's temporary directory
+     *  @Param SearchContext: Counters and time limit
+     *  @Return List<Long>: Number of boards 0, 1, 2, ... moves from the goal (cut short if the context stopped)
+     */
+    public static List<Long> distribution(Grid grid, Path directory, SearchContext context) {
+        Path files = workDirectory(directory);
+        try {
+            ExternalSearch search = new ExternalSearch(grid, files, CHUNK, context);
+            search.writeRoot(grid.goalLo(), grid.goalHi());
+            List<Long> counts = new ArrayList<>();
+            counts.add(1L);
+            for (int depth = 0; !context.isStopped(); depth++) {
+                long count = search.expand(depth, true);
+                if (count == 0) break;
+                counts.add(count);
+            }
+            return counts;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteAll(files);
+        }
+    }
+
+    /* The file of a layer */
+    private Path layer(int depth) {
+        return directory.resolve("layer" + depth + ".bin");
+    }
+
+    /* Layer 0 is just the root */
+    private void writeRoot(long lo, long hi) throws IOException {
+        try (Writer out = new Writer(layer(0))) {
+            out.write(lo, hi);
+        }
+    }
+
+    /*
+     *  Makes layer depth + 1 out of layer depth
+     *  @Param int: The layer to expand
+     *  @Param boolean: Whether layers older than the previous one can be deleted (solve keeps them for the path)
+     *  @Return long: Number of boards in the new layer, or -1 if the goal is one of them
+     */
+    private long expand(int depth, boolean forget) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        int count = 0;
+        try (Reader in = new Reader(layer(depth))) {
+            while (in.next()) {
+                if (context.shouldStop()) return 0;
+                long lo = in.lo;
+                long hi = in.hi;
+                int blank = grid.blank(lo, hi);
+                metrics.expanded();
+                for (int direction = 0; direction < 4; direction++) {
+                    int to = grid.target(blank, direction);
+                    if (to < 0) continue;
+                    int tile = grid.tileAt(lo, hi, to);
+                    childLows[count] = lo ^ Grid.moveLo(tile, blank, to);
+                    childHighs[count] = hi ^ Grid.moveHi(tile, blank, to);
+                    metrics.generated();
+                    if (++count == chunk) {
+                        runs.add(writeRun(count, runs.size()));
+                        count = 0;
+                    }
+                }
+            }
+        }
+        if (count > 0) runs.add(writeRun(count, runs.size()));
+
+        long written = merge(runs, depth);
+        for (Path run : runs) {
+            Files.delete(run);
+        }
+        if (forget && depth > 0) Files.delete(layer(depth - 1));
+        metrics.observeOpen((int) Math.min(Integer.MAX_VALUE, written));
+        return written;
+    }
+
+    /* Sorts the first count children and writes them (without repeats) as a run file */
+    private Path writeRun(int count, int index) throws IOException {
+        sort(childLows, childHighs, 0, count - 1);
+        Path run = directory.resolve("run" + index + ".bin");
+        try (Writer out = new Writer(run)) {
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && childLows[i] == childLows[i - 1] && childHighs[i] == childHighs[i - 1]) continue;
+                out.write(childLows[i], childHighs[i]);
+            }
+        }
+        return run;
+    }
+
+    /*
+     *  Merges the runs into the next layer file, skipping repeats and boards of the current and previous layers
+     *  @Return long: Boards written, or -1 if the goal was one of them
+     */
+    private long merge(List<Path> runs, int depth) throws IOException {
+        List<Reader> inputs = new ArrayList<>();
+        try (Writer out = new Writer(layer(depth + 1));
+             Reader current = new Reader(layer(depth));
+             Reader previous = depth > 0 ? new Reader(layer(depth - 1)) : null) {
+            for (Path run : runs) {
+                Reader input = new Reader(run);
+                inputs.add(input);
+                if (!input.next()) input.close();
+            }
+            current.next();
+            if (previous != null) previous.next();
+
+            boolean goal = false;
+            boolean first = true;
+            long lastLo = 0;
+            long lastHi = 0;
+            while (true) {
+                // The smallest board at the head of any run, runs are few so a scan beats a heap
+                Reader min = null;
+                for (Reader input : inputs) {
+                    if (input.open && (min == null || compare(input.lo, input.hi, min.lo, min.hi) < 0)) min = input;
+                }
+                if (min == null) break;
+                long lo = min.lo;
+                long hi = min.hi;
+                if (!min.next()) min.close();
+
+                if (!first && lo == lastLo && hi == lastHi) continue;
+                first = false;
+                lastLo = lo;
+                lastHi = hi;
+                if (current.skipTo(lo, hi) || (previous != null && previous.skipTo(lo, hi))) {
+                    metrics.duplicate();
+                    continue;
+                }
+                out.write(lo, hi);
+                if (lo == grid.goalLo() && hi == grid.goalHi()) goal = true;
+            }
+            return goal ? -1 : out.count;
+        } finally {
+            for (Reader input : inputs) {
+                input.close();
+            }
+        }
+    }
+
+    /* Walks back from the goal in layer depth to the root, one neighbor in the layer before at a time */
+    private int[] path(int depth) throws IOException {
+        int[] moves = new int[depth];
+        long lo = grid.goalLo();
+        long hi = grid.goalHi();
+        for (int d = depth - 1; d >= 0; d--) {
+            int blank = grid.blank(lo, hi);
+            try (FileChannel layer = FileChannel.open(layer(d), StandardOpenOption.READ)) {
+                for (int direction = 0; direction < 4; direction++) {
+                    int to = grid.target(blank, direction);
+                    if (to < 0) continue;
+                    int tile = grid.tileAt(lo, hi, to);
+                    long parentLo = lo ^ Grid.moveLo(tile, blank, to);
+                    long parentHi = hi ^ Grid.moveHi(tile, blank, to);
+                    if (contains(layer, parentLo, parentHi)) {
+                        // The parent reaches this board by moving its blank back the other way
+                        moves[d] = PackedBoard.opposite(direction);
+                        lo = parentLo;
+                        hi = parentHi;
+                        break;
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    /* Binary search of a sorted layer file, reading only the records it probes */
+    private static boolean contains(FileChannel layer, long lo, long hi) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        long low = 0;
+        long high = layer.size() / RECORD - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            record.clear();
+            while (record.hasRemaining()) {
+                if (layer.read(record, middle * RECORD + record.position()) < 0) throw new IOException("Short layer file");
+            }
+            int order = compare(record.getLong(0), record.getLong(8), lo, hi);
+            if (order == 0) return true;
+            if (order < 0) low = middle + 1;
+            else high = middle - 1;
+        }
+        return false;
+    }
+
+    /* Orders boards as unsigned 128 bit numbers, hi first */
+    private static int compare(long lo, long hi, long otherLo, long otherHi) {
+        int order = Long.compareUnsigned(hi, otherHi);
+        return order != 0 ? order : Long.compareUnsigned(lo, otherLo);
+    }
+
+    /* Quicksort of the boards in [from, to] of two parallel arrays, insertion sort for short ranges */
+    private static void sort(long[] lows, long[] highs, int from, int to) {
+        while (to - from > 16) {
+            int middle = (from + to) >>> 1;
+            long pivotLo = lows[middle];
+            long pivotHi = highs[middle];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (compare(lows[i], highs[i], pivotLo, pivotHi) < 0) i++;
+                while (compare(lows[j], highs[j], pivotLo, pivotHi) > 0) j--;
+                if (i <= j) swap(lows, highs, i++, j--);
+            }
+            // Recurse into the smaller side, loop on the larger one, so the stack stays O(log n)
+            if (j - from < to - i) {
+                sort(lows, highs, from, j);
+                from = i;
+            } else {
+                sort(lows, highs, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && compare(lows[j], highs[j], lows[j - 1], highs[j - 1]) < 0; j--) {
+                swap(lows, highs, j, j - 1);
+            }
+        }
+    }
+
+    private static void swap(long[] lows, long[] highs, int i, int j) {
+        long lo = lows[i];
+        lows[i] = lows[j];
+        lows[j] = lo;
+        long hi = highs[i];
+        highs[i] = highs[j];
+        highs[j] = hi;
+    }
+
+    /*
+     *  A new directory for the files of one solve, so nothing else in the given directory is ever touched
+     *  @Param Path: Directory to make it in (created if missing), null for the system's temporary directory
+     *  @Return Path: The new directory
+     */
+    private static Path workDirectory(Path directory) {
+        try {
+            if (directory == null) return Files.createTempDirectory("layers");
+            return Files.createTempDirectory(Files.createDirectories(directory), "layers");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* Deletes a directory made by workDirectory, with the layer and run files in it */
+    private static void deleteAll(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+            Files.delete(directory);
+        } catch (IOException e) {
+            System.err.println("Could not clean up " + directory);
+        }
+    }
+
+    /* Sequential reader of a board file through a buffered channel */
+    private static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        // The board read last, valid while open
+        private long lo;
+        private long hi;
+        private boolean open = true;
+
+        Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        /* Reads the next board, false at the end of the file */
+        boolean next() throws IOException {
+            if (buffer.remaining() < RECORD) {
+                buffer.compact();
+                while (buffer.position() < RECORD && channel.read(buffer) > 0) {
+                    // Keep reading until at least one record is in
+                }
+                buffer.flip();
+                if (buffer.remaining() < RECORD) {
+                    open = false;
+                    return false;
+                }
+            }
+            lo = buffer.getLong();
+            hi = buffer.getLong();
+            return true;
+        }
+
+        /* Moves forward to the first board at or past (lo, hi), whether that's the board itself */
+        boolean skipTo(long lo, long hi) throws IOException {
+            while (open && compare(this.lo, this.hi, lo, hi) < 0) {
+                next();
+            }
+            return open && this.lo == lo && this.hi == hi;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            channel.close();
+        }
+    }
+
+    /* Sequential writer of a board file through a buffered channel */
+    private static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        // Boards written
+        private long count = 0;
+
+        Writer(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(long lo, long hi) throws IOException {
+            if (buffer.remaining() < RECORD) drain();
+            buffer.putLong(lo).putLong(hi);
+            count++;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ *  Geometry and packed representation of a width x height sliding puzzle (up to 25 cells, e.g. 4x4 or 5x5),
+ *  the generalized version of PackedBoard used by GridBoard and GridSolver.
+ *
+ *  A board is two longs (lo, hi) read as one 128 bit number: cell i (row major) lives in bits 5i..5i+4, where
+ *  the blank tile is 0 and tiles are 1 .. cells - 1. Cell 12 straddles the two longs. There is no room left to
+ *  cache the blank cell like PackedBoard does, so the searches carry it next to the board.
+ *  The goal has the blank in cell 0 and tile t in cell t, like "b12 345 678".
+ */
+public final class Grid {
+
+    // Largest board that fits in 128 bits at 5 bits per cell
+    public static final int MAX_CELLS = 25;
+    // Bits per cell
+    private static final int BITS = 5;
+    private static final long CELL_MASK = (1L << BITS) - 1;
+
+    private final int width;
+    private final int height;
+    private final int cells;
+    // neighbors[blank][direction] is the cell the blank tile moves into, or -1 if it would leave the board
+    private final int[][] neighbors;
+    // MISPLACED and MANHATTAN like in PackedBoard, [tile][cell]
+    private final int[][] misplaced;
+    private final int[][] manhattan;
+    private final long goalLo;
+    private final long goalHi;
+
+    /* Constructor for a width x height board, both at least 2 and at most MAX_CELLS cells in total */
+    public Grid(int width, int height) {
+        if (width < 2 || height < 2 || width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Boards go from 2x2 to " + MAX_CELLS + " cells, not " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        cells = width * height;
+        neighbors = new int[cells][4];
+        misplaced = new int[cells][cells];
+        manhattan = new int[cells][cells];
+
+        long lo = 0;
+        long hi = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int row = cell / width;
+            int col = cell % width;
+            neighbors[cell][PackedBoard.UP] = row == 0 ? -1 : cell - width;
+            neighbors[cell][PackedBoard.DOWN] = row == height - 1 ? -1 : cell + width;
+            neighbors[cell][PackedBoard.LEFT] = col == 0 ? -1 : cell - 1;
+            neighbors[cell][PackedBoard.RIGHT] = col == width - 1 ? -1 : cell + 1;
+
+            // Tile t belongs in cell t
+            for (int tile = 1; tile < cells; tile++) {
+                misplaced[tile][cell] = tile == cell ? 0 : 1;
+                manhattan[tile][cell] = Math.abs(tile / width - row) + Math.abs(tile % width - col);
+            }
+            lo |= loBits(cell, cell);
+            hi |= hiBits(cell, cell);
+        }
+        goalLo = lo;
+        goalHi = hi;
+    }
+
+    /* Parses a size written like "4x4" (width x height) */
+    public static Grid parse(String size) {
+        int x = size.indexOf('x');
+        if (x < 0) throw new IllegalArgumentException("Sizes are written like 4x4, not " + size);
+        return new Grid(Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1)));
+    }
+
+    /* Get the width */
+    public int width() {
+        return width;
+    }
+
+    /* Get the height */
+    public int height() {
+        return height;
+    }
+
+    /* Get the number of cells */
+    public int cells() {
+        return cells;
+    }
+
+    /* Get the low half of the solved board */
+    public long goalLo() {
+        return goalLo;
+    }
+
+    /* Get the high half of the solved board */
+    public long goalHi() {
+        return goalHi;
+    }
+
+    /* Low half of a value placed in a cell (the bits that land in lo) */
+    public static long loBits(int value, int cell) {
+        int bit = cell * BITS;
+        return bit < 64 ? (long) value << bit : 0;
+    }
+
+    /* High half of a value placed in a cell (the bits that land in hi) */
+    public static long hiBits(int value, int cell) {
+        int bit = cell * BITS;
+        if (bit >= 64) return (long) value << (bit - 64);
+        // Only cell 12 has bits on both sides
+        return bit + BITS > 64 ? (long) value >>> (64 - bit) : 0;
+    }
+
+    /* Get the tile (0 for blank) sitting in a cell */
+    public int tileAt(long lo, long hi, int cell) {
+        int bit = cell * BITS;
+        if (bit >= 64) return (int) (hi >>> (bit - 64) & CELL_MASK);
+        if (bit + BITS <= 64) return (int) (lo >>> bit & CELL_MASK);
+        return (int) ((lo >>> bit | hi << (64 - bit)) & CELL_MASK);
+    }
+
+    /* Get the cell the blank tile is in (searched for, the searches keep track of it instead) */
+    public int blank(long lo, long hi) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (tileAt(lo, hi, cell) == 0) return cell;
+        }
+        return -1;
+    }
+
+    /* Get the cell the blank would move into from the given cell, -1 if the move leaves the board */
+    public int target(int blank, int direction) {
+        return neighbors[blank][direction];
+    }
+
+    /*
+     *  Moving the blank from "blank" into "to" slides the tile at "to" into "blank". Since the blank cell
+     *  holds 0, the child is the parent xor the tile at both cells, which is what these two return
+     *  @Param int: The tile that slides
+     *  @Param int: The cell the blank is in
+     *  @Param int: The cell the blank moves into
+     *  @Return long: The low (or high) half to xor the parent with
+     */
+    public static long moveLo(int tile, int blank, int to) {
+        return loBits(tile, blank) ^ loBits(tile, to);
+    }
+
+    /* See moveLo */
+    public static long moveHi(int tile, int blank, int to) {
+        return hiBits(tile, blank) ^ hiBits(tile, to);
+    }
+
+    /*
+     *  Checks whether the goal can be reached. Every move swaps the blank with a neighbor, which flips the parity
+     *  of the permutation (counting the blank as tile 0) and of the blank's distance from its solved cell together,
+     *  so the board is solvable exactly when the two parities match. This holds for any width, unlike counting
+     *  inversions alone, which only works when the width is odd
+     */
+    public boolean isSolvable(long lo, long hi) {
+        int inversions = 0;
+        int blank = -1;
+        for (int i = 0; i < cells; i++) {
+            int tile = tileAt(lo, hi, i);
+            if (tile == 0) blank = i;
+            for (int j = i + 1; j < cells; j++) {
+                if (tileAt(lo, hi, j) < tile) inversions++;
+            }
+        }
+        return inversions % 2 == (blank / width + blank % width) % 2;
+    }
+
+    /* Evaluates h1 (misplaced tiles) or h2 (Manhattan distance) from scratch, anything but H1 gets H2 */
+    public int heuristic(int code, long lo, long hi) {
+        int[][] table = code == PackedBoard.H1 ? misplaced : manhattan;
+        int counter = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            counter += table[tileAt(lo, hi, cell)][cell];
+        }
+        return counter;
+    }
+
+    /* Change of h1 or h2 when a tile slides from "to" into "blank", two lookups like PackedBoard.tableDelta */
+    public int heuristicDelta(int code, int tile, int blank, int to) {
+        int[] row = (code == PackedBoard.H1 ? misplaced : manhattan)[tile];
+        return row[blank] - row[to];
+    }
+
+    /*
+     *  Packs a board from its tiles in row major order, "b" or "0" for the blank
+     *  @Param String[]: The tiles, e.g. {"1", "2", "3", "b", ...}
+     *  @Param int: Index of the first tile in the array
+     *  @Return long[]: {lo, hi}
+     */
+    public long[] pack(String[] tiles, int from) {
+        if (tiles.length - from != cells) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " board needs " + cells + " tiles");
+        }
+        long lo = 0;
+        long hi = 0;
+        int seen = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            String tile = tiles[from + cell];
+            int value = tile.equals("b") ? 0 : Integer.parseInt(tile);
+            if (value < 0 || value >= cells || (seen & (1 << value)) != 0) {
+                throw new IllegalArgumentException("Every tile from 1 to " + (cells - 1) + " and the blank must appear once");
+            }
+            seen |= 1 << value;
+            lo |= loBits(value, cell);
+            hi |= hiBits(value, cell);
+        }
+        return new long[]{lo, hi};
+    }
+
+    /* One row of a board, tiles right aligned so the columns line up ("b" for the blank) */
+    public String row(long lo, long hi, int row) {
+        StringBuilder sb = new StringBuilder(width * 3);
+        for (int col = 0; col < width; col++) {
+            int tile = tileAt(lo, hi, row * width + col);
+            if (col != 0) sb.append(' ');
+            if (cells > 10) sb.append(tile < 10 ? " " : "");
+            sb.append(tile == 0 ? "b" : String.valueOf(tile));
+        }
+        return sb.toString();
+    }
+
+    /* The whole board on one line, rows separated by " / " (which setState accepts back) */
+    public String toString(long lo, long hi) {
+        StringBuilder sb = new StringBuilder();
+        for (int cell = 0; cell < cells; cell++) {
+            if (cell != 0) sb.append(cell % width == 0 ? " / " : " ");
+            int tile = tileAt(lo, hi, cell);
+            sb.append(tile == 0 ? "b" : String.valueOf(tile));
+        }
+        return sb.toString();
+    }
+}
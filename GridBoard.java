@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/*
+ *  A board of any Grid size (4x4, 5x5, ...), the counterpart of Board for the generalized engine.
+ *  Immutable, every move makes a new GridBoard. Solutions are kept as direction codes instead of parent chains.
+ */
+public final class GridBoard {
+
+    private final Grid grid;
+    // The packed board (see Grid) and the cell of its blank tile
+    private final long lo;
+    private final long hi;
+    private final int blank;
+
+    /* Constructor to wrap an already packed board */
+    public GridBoard(Grid grid, long lo, long hi) {
+        this.grid = grid;
+        this.lo = lo;
+        this.hi = hi;
+        this.blank = grid.blank(lo, hi);
+    }
+
+    /* The solved board of a size */
+    public static GridBoard goal(Grid grid) {
+        return new GridBoard(grid, grid.goalLo(), grid.goalHi());
+    }
+
+    /*
+     *  Parses a board written like "4x4 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 b", rows may be separated by "/"
+     *  @Param String[]: The words of a command
+     *  @Param int: Index of the size word, the tiles follow it
+     *  @Return GridBoard: The board
+     */
+    public static GridBoard parse(String[] words, int from) {
+        Grid grid = Grid.parse(words[from]);
+        String[] tiles = new String[words.length - from - 1];
+        int count = 0;
+        for (int i = from + 1; i < words.length; i++) {
+            if (!words[i].equals("/")) tiles[count++] = words[i];
+        }
+        long[] packed = grid.pack(Arrays.copyOf(tiles, count), 0);
+        return new GridBoard(grid, packed[0], packed[1]);
+    }
+
+    /* Get the size of the board */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /* Get the low half of the packed board */
+    public long getLo() {
+        return lo;
+    }
+
+    /* Get the high half of the packed board */
+    public long getHi() {
+        return hi;
+    }
+
+    /* Get the cell of the blank tile */
+    public int getBlank() {
+        return blank;
+    }
+
+    /* Check if the board is solved */
+    public boolean isSolved() {
+        return lo == grid.goalLo() && hi == grid.goalHi();
+    }
+
+    /* Check if the board can be solved at all */
+    public boolean isSolvable() {
+        return grid.isSolvable(lo, hi);
+    }
+
+    /* Get the board after moving the blank tile in a direction (code, see PackedBoard), null if it can't go there */
+    public GridBoard move(int direction) {
+        int to = grid.target(blank, direction);
+        if (to < 0) return null;
+        int tile = grid.tileAt(lo, hi, to);
+        return new GridBoard(grid, lo ^ Grid.moveLo(tile, blank, to), hi ^ Grid.moveHi(tile, blank, to));
+    }
+
+    /* Get the board after a sequence of moves (direction codes, all valid) */
+    public GridBoard applyMoves(int[] moves) {
+        GridBoard current = this;
+        for (int move : moves) {
+            current = current.move(move);
+        }
+        return current;
+    }
+
+    /* Prints the board one row per line, built up first so it's a single write like Board.printState */
+    public void printState() {
+        String newLine = System.lineSeparator();
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < grid.height(); row++) {
+            if (row != 0) sb.append(newLine);
+            sb.append(grid.row(lo, hi, row));
+        }
+        sb.append("\n");
+        System.out.println(sb);
+    }
+
+    /* The board on one line, e.g. "b 1 2 3 / 4 5 6 7 / 8 9 10 11 / 12 13 14 15" */
+    @Override
+    public String toString() {
+        return grid.toString(lo, hi);
+    }
+}
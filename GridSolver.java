@@ -0,0 +1,353 @@
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/*
+ *  A*, IDA* and local beam search for Grid boards (4x4, 5x5, ...), working the same way as their 3x3 versions
+ *  in Main and IDAStar but on (lo, hi) packed boards with the blank cell carried alongside.
+ *  h1 and h2 are supported (h3 to h5 fall back to h2, their tables only cover 3x3). A* and beam keep their
+ *  nodes in primitive arrays like NodePool and stop at maxNodes. IDA* needs no node limit since its memory
+ *  doesn't grow, which makes it the one to use for hard 15-puzzles. All three stop at the context's time limit.
+ *  Every solver returns the direction codes solving the board, or null if it wasn't solved.
+ */
+public final class GridSolver {
+
+    /* Search nodes as a structure of arrays, like NodePool with the board split in two halves */
+    private static final class Nodes {
+        private long[] lows = new long[1 << 10];
+        private long[] highs = new long[1 << 10];
+        private byte[] blank = new byte[1 << 10];
+        private int[] g = new int[1 << 10];
+        private short[] estimate = new short[1 << 10];
+        // parent << 2 | move, like NodePool
+        private int[] link = new int[1 << 10];
+        private int size = 0;
+
+        int add(long lo, long hi, int cell, int cost, int h, int parent, int direction) {
+            if (size == lows.length) {
+                int capacity = size * 2;
+                lows = Arrays.copyOf(lows, capacity);
+                highs = Arrays.copyOf(highs, capacity);
+                blank = Arrays.copyOf(blank, capacity);
+                g = Arrays.copyOf(g, capacity);
+                estimate = Arrays.copyOf(estimate, capacity);
+                link = Arrays.copyOf(link, capacity);
+            }
+            lows[size] = lo;
+            highs[size] = hi;
+            blank[size] = (byte) cell;
+            g[size] = cost;
+            estimate[size] = (short) h;
+            link[size] = parent << 2 | (direction & 3);
+            return size++;
+        }
+
+        /* Moves from the root to a node, one walk over the parent indices */
+        int[] path(int node) {
+            int[] moves = new int[g[node]];
+            for (; link[node] >> 2 != NodePool.ROOT; node = link[node] >> 2) {
+                moves[g[node] - 1] = link[node] & 3;
+            }
+            return moves;
+        }
+    }
+
+    private GridSolver() {
+    }
+
+    /* Check whether a solver (the word after "solve") works on Grid boards */
+    public static boolean supports(String solver) {
+        return solver.equals("A-star") || solver.equals("IDA-star") || solver.equals("beam") || solver.equals("external");
+    }
+
+    /*
+     *  Runs the solver named in a solve command
+     *  @Param String[]: The split command, e.g. {"solve", "A-star", "h2", "bucket"}, see supports()
+     *  @Param GridBoard: The board to solve
+     *  @Param SearchContext: Node limit and counters of this solve
+     *  @Return int[]: The direction codes solving the board, or null if it wasn't solved
+     */
+    public static int[] solve(String[] command, GridBoard current, SearchContext context) {
+        String openList = command.length > 3 ? command[3] : "heap";
+
+        context.getMetrics().start();
+        int[] moves = switch (command[1]) {
+            case "A-star" -> solveAStar(command[2], current, openList, context);
+            case "IDA-star" -> solveIDAStar(command[2], current, context);
+            // Breadth first search with its layers on disk, the optional word is the directory for them
+            case "external" -> ExternalSearch.solve(current, command.length > 2 ? Path.of(command[2]) : null, context);
+            // Same arguments as on 3x3: "beam k [generations]"
+            case "beam" -> solveBeam(Integer.parseInt(command[2]), Main.beamGenerations(command), current, context);
+            default -> throw new IllegalArgumentException("Unknown solver " + command[1]);
+        };
+        context.getMetrics().stop();
+
+        return moves;
+    }
+
+    /*
+     *  A* with a closed table of best g per board, same as Main.solveAStar
+     *  @Param String: h1 || h2, the heuristic function being used
+     *  @Param GridBoard: The board to solve
+     *  @Param String: heap || bucket, the OpenList implementation ordering the nodes
+     *  @Param SearchContext: Node limit and counters of this solve
+     */
+    public static int[] solveAStar(String heuristic, GridBoard current, String openListKind, SearchContext context) {
+        if (!current.isSolvable()) return null;
+
+        Grid grid = current.getGrid();
+        int code = PackedBoard.heuristicCode(heuristic);
+        SearchMetrics metrics = context.getMetrics();
+        int rootEstimate = grid.heuristic(code, current.getLo(), current.getHi());
+        metrics.heuristicCall();
+
+        GridStateTable closed = new GridStateTable(Math.min(context.getMaxNodes(), 1 << 12));
+        Nodes nodes = new Nodes();
+        OpenList open = OpenList.create(openListKind);
+        open.add(nodes.add(current.getLo(), current.getHi(), current.getBlank(), 0, rootEstimate, NodePool.ROOT, 0),
+                rootEstimate, 0);
+
+        while (!open.isEmpty()) {
+            int parent = open.poll();
+            long lo = nodes.lows[parent];
+            long hi = nodes.highs[parent];
+            int level = nodes.g[parent];
+
+            // Skip stale queue entries, this board was already expanded at the same or a lower depth
+            int best = closed.get(lo, hi);
+            if (best != GridStateTable.MISSING && best <= level) {
+                metrics.duplicate();
+                continue;
+            }
+            closed.put(lo, hi, level);
+            context.visitNode();
+            metrics.observeClosed(closed.size());
+
+            if (lo == grid.goalLo() && hi == grid.goalHi()) {
+                context.setFound(true);
+                return nodes.path(parent);
+            }
+            if (closed.size() > context.getMaxNodes() || context.shouldStop()) break;
+
+            metrics.expanded();
+            int blank = nodes.blank[parent];
+            for (int direction = 0; direction < 4; direction++) {
+                int to = grid.target(blank, direction);
+                if (to < 0) continue;
+                int tile = grid.tileAt(lo, hi, to);
+                long childLo = lo ^ Grid.moveLo(tile, blank, to);
+                long childHi = hi ^ Grid.moveHi(tile, blank, to);
+
+                // Avoid loops, unless this path reaches an expanded board with fewer moves
+                int known = closed.get(childLo, childHi);
+                if (known != GridStateTable.MISSING && known <= level + 1) {
+                    metrics.duplicate();
+                    continue;
+                }
+
+                int estimate = nodes.estimate[parent] + grid.heuristicDelta(code, tile, blank, to);
+                metrics.heuristicCall();
+                metrics.generated();
+                int child = nodes.add(childLo, childHi, to, level + 1, estimate, parent, direction);
+                open.add(child, level + 1 + estimate, level + 1);
+            }
+            metrics.observeOpen(open.size());
+        }
+
+        return null;
+    }
+
+    /*
+     *  Local beam search, the same as Main.solveBeam: every generation keeps the k children with the lowest Manhattan
+     *  distance, picked with Main.selectSmallest from fixed size arrays, and drops boards seen before
+     *  @Param int: k, the beam width
+     *  @Param int: The maximum number of generations
+     *  @Param GridBoard: The board to solve
+     *  @Param SearchContext: Node limit and counters of this solve
+     */
+    public static int[] solveBeam(int k, int generations, GridBoard current, SearchContext context) {
+        if (!current.isSolvable()) return null;
+        if (current.isSolved()) {
+            context.setFound(true);
+            return new int[0];
+        }
+
+        Grid grid = current.getGrid();
+        SearchMetrics metrics = context.getMetrics();
+        int rootEstimate = grid.heuristic(PackedBoard.H2, current.getLo(), current.getHi());
+        metrics.heuristicCall();
+
+        // Boards that made it into a beam, for the moves at the end, and every board seen so far (-> its generation)
+        Nodes nodes = new Nodes();
+        GridStateTable seen = new GridStateTable(Math.min(k * 64, 1 << 12));
+        seen.put(current.getLo(), current.getHi(), 0);
+
+        // The beam (nodes) and its children: board, blank, Manhattan distance, parent node and move
+        int[] beam = {nodes.add(current.getLo(), current.getHi(), current.getBlank(), 0, rootEstimate, NodePool.ROOT, 0)};
+        int width = 1;
+        long[] childLows = new long[4 * k];
+        long[] childHighs = new long[4 * k];
+        byte[] childBlanks = new byte[4 * k];
+        int[] childEstimates = new int[4 * k];
+        int[] childLinks = new int[4 * k];
+        // Selection keys, Manhattan distance << 32 | child index, so ties always go the same way
+        long[] keys = new long[4 * k];
+
+        for (int generation = 1; generation <= generations; generation++) {
+            int count = 0;
+            for (int i = 0; i < width; i++) {
+                int parent = beam[i];
+                long lo = nodes.lows[parent];
+                long hi = nodes.highs[parent];
+                int blank = nodes.blank[parent];
+                metrics.expanded();
+                for (int direction = 0; direction < 4; direction++) {
+                    int to = grid.target(blank, direction);
+                    if (to < 0) continue;
+                    int tile = grid.tileAt(lo, hi, to);
+                    long childLo = lo ^ Grid.moveLo(tile, blank, to);
+                    long childHi = hi ^ Grid.moveHi(tile, blank, to);
+                    context.visitNode();
+                    metrics.generated();
+
+                    // Drop children seen before, whether in an earlier generation or earlier in this one
+                    if (seen.get(childLo, childHi) != GridStateTable.MISSING) {
+                        metrics.duplicate();
+                        continue;
+                    }
+                    seen.put(childLo, childHi, generation);
+                    int estimate = nodes.estimate[parent] + grid.heuristicDelta(PackedBoard.H2, tile, blank, to);
+                    metrics.heuristicCall();
+
+                    if (childLo == grid.goalLo() && childHi == grid.goalHi()) {
+                        context.setFound(true);
+                        return nodes.path(nodes.add(childLo, childHi, to, generation, 0, parent, direction));
+                    }
+                    childLows[count] = childLo;
+                    childHighs[count] = childHi;
+                    childBlanks[count] = (byte) to;
+                    childEstimates[count] = estimate;
+                    childLinks[count] = parent << 2 | direction;
+                    keys[count] = (long) estimate << 32 | count;
+                    count++;
+                }
+            }
+            metrics.observeOpen(count);
+            metrics.observeClosed(seen.size());
+
+            // Every child is as deep as the others, so the best f are the lowest estimates
+            if (count == 0 || context.exceededMaxNodes() || context.shouldStop()) break;
+            width = Math.min(k, count);
+            Main.selectSmallest(keys, count, width);
+            Arrays.sort(keys, 0, width);
+            if (beam.length < width) beam = new int[k];
+            for (int i = 0; i < width; i++) {
+                int c = (int) keys[i];
+                beam[i] = nodes.add(childLows[c], childHighs[c], childBlanks[c], generation, childEstimates[c],
+                        childLinks[c] >> 2, childLinks[c] & 3);
+            }
+        }
+
+        return null;
+    }
+
+    /*
+     *  IDA*, same as IDAStar: depth first searches bounded by f, moves made and unmade in place
+     *  @Param String: h1 || h2, the heuristic function being used
+     *  @Param GridBoard: The board to solve
+     *  @Param SearchContext: Counters and time limit of this solve
+     */
+    public static int[] solveIDAStar(String heuristic, GridBoard current, SearchContext context) {
+        if (!current.isSolvable()) return null;
+
+        Deepening search = new Deepening(current, PackedBoard.heuristicCode(heuristic), context);
+        int bound = search.estimate;
+        while (true) {
+            int t = search.search(0, bound, -1);
+            if (t == Deepening.FOUND) break;
+            if (context.isStopped()) return null;
+            bound = t;
+        }
+        context.setFound(true);
+
+        return Arrays.copyOf(search.path, bound);
+    }
+
+    /* State of one IDA* solve: the single board searched on and the moves leading to it */
+    private static final class Deepening {
+        // Returned by search() once the goal is reached
+        static final int FOUND = -1;
+
+        private final Grid grid;
+        private final int heuristic;
+        private final SearchContext context;
+        private final SearchMetrics metrics;
+        private long lo;
+        private long hi;
+        private int blank;
+        private int estimate;
+        // Moves made from the root, grown when a search goes deeper than it has room for
+        private int[] path = new int[64];
+
+        Deepening(GridBoard start, int heuristic, SearchContext context) {
+            this.grid = start.getGrid();
+            this.heuristic = heuristic;
+            this.context = context;
+            this.metrics = context.getMetrics();
+            lo = start.getLo();
+            hi = start.getHi();
+            blank = start.getBlank();
+            estimate = grid.heuristic(heuristic, lo, hi);
+            metrics.heuristicCall();
+        }
+
+        /*
+         *  Depth-first search below the current board
+         *  @Param int: g, the number of moves made so far
+         *  @Param int: The f bound of this iteration
+         *  @Param int: The direction code of the last move, -1 at the root
+         *  @Return int: FOUND, or the smallest f that went over the bound (meaningless once the context stopped)
+         */
+        int search(int g, int bound, int previous) {
+            int f = g + estimate;
+            if (f > bound) return f;
+            if (lo == grid.goalLo() && hi == grid.goalHi()) return FOUND;
+            if (context.shouldStop()) return Integer.MAX_VALUE;
+            if (g == path.length) path = Arrays.copyOf(path, g * 2);
+
+            int min = Integer.MAX_VALUE;
+            metrics.expanded();
+            metrics.observeOpen(g + 1);
+            for (int direction = 0; direction < 4; direction++) {
+                // Never undo the previous move
+                if (previous >= 0 && direction == PackedBoard.opposite(previous)) continue;
+                int to = grid.target(blank, direction);
+                if (to < 0) continue;
+
+                // Make the move in place
+                int from = blank;
+                int tile = grid.tileAt(lo, hi, to);
+                int delta = grid.heuristicDelta(heuristic, tile, from, to);
+                long xorLo = Grid.moveLo(tile, from, to);
+                long xorHi = Grid.moveHi(tile, from, to);
+                lo ^= xorLo;
+                hi ^= xorHi;
+                blank = to;
+                estimate += delta;
+                path[g] = direction;
+                metrics.heuristicCall();
+                metrics.generated();
+
+                int t = search(g + 1, bound, direction);
+                if (t == FOUND) return FOUND;
+                if (t < min) min = t;
+
+                // Unmake it, xor is its own inverse
+                lo ^= xorLo;
+                hi ^= xorHi;
+                blank = from;
+                estimate -= delta;
+            }
+            return min;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  StateTable for Grid boards: open addressing hash table from a (lo, hi) packed board to an int.
+ *  The low half of a board is never 0 (cells 0 and 1 both live in it and only one of them can be the blank),
+ *  so a 0 in lo marks an empty slot.
+ */
+public final class GridStateTable {
+
+    // Returned by get() when the board has never been added
+    public static final int MISSING = -1;
+
+    private long[] lows;
+    private long[] highs;
+    private int[] values;
+    // Number of boards in the table
+    private int size;
+    // Table length minus one, the length is always a power of two
+    private int mask;
+
+    /* Constructor with a starting capacity, the table grows as needed */
+    public GridStateTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        lows = new long[capacity];
+        highs = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /* Get the number of boards in the table */
+    public int size() {
+        return size;
+    }
+
+    /* Get the value stored for a board, or MISSING if the board isn't in the table */
+    public int get(long lo, long hi) {
+        int slot = slot(lo, hi);
+        while (lows[slot] != 0) {
+            if (lows[slot] == lo && highs[slot] == hi) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /* Add a board or overwrite the value it already has */
+    public void put(long lo, long hi, int value) {
+        int slot = slot(lo, hi);
+        while (lows[slot] != 0) {
+            if (lows[slot] == lo && highs[slot] == hi) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        lows[slot] = lo;
+        highs[slot] = hi;
+        values[slot] = value;
+
+        // Keep the load factor at or below one half so probe sequences stay short
+        if (++size * 2 > lows.length) grow();
+    }
+
+    /* Get the slot a board's probe sequence starts at, both halves mixed with StateTable's finalizer */
+    private int slot(long lo, long hi) {
+        return (int) StateTable.hash(lo ^ StateTable.hash(hi)) & mask;
+    }
+
+    /* Doubles the arrays and re-adds every board */
+    private void grow() {
+        long[] oldLows = lows;
+        long[] oldHighs = highs;
+        int[] oldValues = values;
+        lows = new long[oldLows.length * 2];
+        highs = new long[oldHighs.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = lows.length - 1;
+
+        for (int i = 0; i < oldLows.length; i++) {
+            if (oldLows[i] == 0) continue;
+            int slot = slot(oldLows[i], oldHighs[i]);
+            while (lows[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            lows[slot] = oldLows[i];
+            highs[slot] = oldHighs[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+
+/*
+ *  Binary min-heap open list, O(log n) per add and poll.
+ *  Each entry's priority is packed into one long (f in the high half, inverted g in the low half)
+ *  so ordering is a single comparison and the heap lives in two primitive arrays.
+ */
+public final class HeapOpenList implements OpenList {
+
+    private long[] keys = new long[64];
+    private int[] nodes = new int[64];
+    private int size;
+
+    @Override
+    public void add(int node, int f, int g) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+
+        // Lower f first, then higher g first
+        long key = ((long) f << 32) | (Integer.MAX_VALUE - g);
+
+        // Sift the new entry up from the bottom of the heap
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+    }
+
+    @Override
+    public int poll() {
+        int top = nodes[0];
+        long key = keys[--size];
+        int node = nodes[size];
+
+        // Sift the last entry down from the root
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (key <= keys[child]) break;
+            keys[i] = keys[child];
+            nodes[i] = nodes[child];
+            i = child;
+        }
+        keys[i] = key;
+        nodes[i] = node;
+
+        return top;
+    }
+
+    @Override
+    public int peekF() {
+        return size == 0 ? Integer.MAX_VALUE : (int) (keys[0] >>> 32);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+}
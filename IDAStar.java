@@ -0,0 +1,100 @@
+/*
+ *  Iterative deepening A* (IDA*). Runs depth-first searches bounded by f = g + h, raising the bound to the
+ *  smallest f that went over it, until the goal is reached. Moves are made and unmade in place on one packed
+ *  board and the heuristic is updated incrementally, so memory is proportional to the solution depth.
+ *  Sources: Korf, "Depth-first iterative-deepening: An optimal admissible tree search" (1985)
+ */
+public final class IDAStar {
+
+    // Returned by search() once the goal is reached
+    private static final int FOUND = -1;
+    // No 8-puzzle needs more than 31 moves, so this is plenty of room for the path
+    private static final int MAX_DEPTH = 64;
+
+    // Heuristic code (see PackedBoard)
+    private final int heuristic;
+    // The single board that is searched on, along with its current h
+    private long state;
+    private int estimate;
+    // Moves made from the root to the current board, path[i] is the direction code of move i
+    private final int[] path = new int[MAX_DEPTH];
+    // Time limit and counters of this solve
+    private final SearchContext context;
+    private final SearchMetrics metrics;
+
+    private IDAStar(int heuristic, SearchContext context) {
+        this.heuristic = heuristic;
+        this.context = context;
+        this.metrics = context.getMetrics();
+    }
+
+    /*
+     *  Method to solve the puzzle with IDA*
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param SearchContext: Counters and time limit of this solve (IDA* doesn't need the node limit, its memory doesn't grow)
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it can't be solved or was stopped
+     */
+    public static Board solve(String heuristic, Board current, SearchContext context) {
+        // An unsolvable board would make the bound grow forever
+        if (!PackedBoard.isSolvable(current.getState())) return current;
+
+        IDAStar search = new IDAStar(PackedBoard.heuristicCode(heuristic), context);
+        search.state = current.getState();
+        search.estimate = PackedBoard.heuristic(search.heuristic, search.state);
+        search.metrics.heuristicCall();
+
+        int bound = search.estimate;
+        while (true) {
+            int t = search.search(0, bound, -1);
+            if (t == FOUND) break;
+            if (context.isStopped()) return current;
+            bound = t;
+        }
+        context.setFound(true);
+
+        return current.applyMoves(search.path, bound);
+    }
+
+    /*
+     *  Depth-first search below the current board
+     *  @Param int: g, the number of moves made so far
+     *  @Param int: The f bound of this iteration
+     *  @Param int: The direction code of the last move, -1 at the root
+     *  @Return int: FOUND, or the smallest f that went over the bound (meaningless once the context stopped)
+     */
+    private int search(int g, int bound, int previous) {
+        int f = g + estimate;
+        if (f > bound) return f;
+        if (state == PackedBoard.GOAL) return FOUND;
+        if (context.shouldStop()) return Integer.MAX_VALUE;
+
+        int min = Integer.MAX_VALUE;
+        metrics.expanded();
+        // The path is the only "open list" IDA* has
+        metrics.observeOpen(g + 1);
+        for (int direction = 0; direction < 4; direction++) {
+            // Never undo the previous move, it only leads back to the board before
+            if (previous >= 0 && direction == PackedBoard.opposite(previous)) continue;
+            if (!PackedBoard.canMove(state, direction)) continue;
+
+            // Make the move in place
+            int delta = PackedBoard.heuristicDelta(heuristic, state, direction);
+            state = PackedBoard.move(state, direction);
+            estimate += delta;
+            path[g] = direction;
+            metrics.heuristicCall();
+            metrics.generated();
+
+            int t = search(g + 1, bound, direction);
+            if (t == FOUND) return FOUND;
+
+            // Unmake it
+            state = PackedBoard.move(state, PackedBoard.opposite(direction));
+            estimate -= delta;
+            if (t < min) min = t;
+        }
+
+        return min;
+    }
+}
@@ -0,0 +1,120 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+/*
+ *  Uniformly random solvable boards, for test and load corpora.
+ *  A random walk from the goal (randomizeState) mostly ends up near where it started, however many moves it makes.
+ *  Instead, every board here is PackedBoard.unrank() of a random index in 0 .. STATES - 1, which is exactly uniform
+ *  over the 181,440 solvable boards (unrank only ever returns solvable ones) and costs no moves or Boards at all.
+ *  Boards of one exact optimal depth are drawn uniformly from that depth's ranks, listed once from DistanceOracle.
+ *  The same seed always gives the same boards.
+ */
+public final class InstanceGenerator {
+
+    private final Random random;
+
+    /* Constructor for a generator drawing from a seeded Random */
+    public InstanceGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /* Lazy holder, ranks of the boards of every optimal depth, RANKS[depth] (built on the first depth filtered draw) */
+    private static final class Depths {
+        private static final int[][] RANKS = build();
+
+        private static int[][] build() {
+            DistanceOracle oracle = DistanceOracle.get();
+            int[] counts = new int[64];
+            int deepest = 0;
+            for (int rank = 0; rank < PackedBoard.STATES; rank++) {
+                int depth = oracle.distanceAt(rank);
+                counts[depth]++;
+                deepest = Math.max(deepest, depth);
+            }
+
+            int[][] ranks = new int[deepest + 1][];
+            for (int depth = 0; depth <= deepest; depth++) {
+                ranks[depth] = new int[counts[depth]];
+            }
+            Arrays.fill(counts, 0);
+            for (int rank = 0; rank < PackedBoard.STATES; rank++) {
+                int depth = oracle.distanceAt(rank);
+                ranks[depth][counts[depth]++] = rank;
+            }
+            return ranks;
+        }
+    }
+
+    /* Get the largest optimal depth of any board (31) */
+    public static int maxDepth() {
+        return Depths.RANKS.length - 1;
+    }
+
+    /* Get the number of boards whose optimal solution takes exactly depth moves */
+    public static int count(int depth) {
+        return depth < 0 || depth > maxDepth() ? 0 : Depths.RANKS[depth].length;
+    }
+
+    /* Draws a board uniformly from all solvable boards */
+    public long next() {
+        return PackedBoard.unrank(random.nextInt(PackedBoard.STATES));
+    }
+
+    /*
+     *  Draws a board uniformly from the boards exactly depth moves from the goal
+     *  @Param int: 0 .. maxDepth()
+     *  @Return long: The packed board
+     */
+    public long next(int depth) {
+        if (count(depth) == 0) {
+            throw new IllegalArgumentException("No board is exactly " + depth + " moves from the goal");
+        }
+        int[] ranks = Depths.RANKS[depth];
+        return PackedBoard.unrank(ranks[random.nextInt(ranks.length)]);
+    }
+
+    /*
+     *  A lazy stream of boards, so millions can be consumed without holding them
+     *  @Param long: How many boards
+     *  @Param int: Their exact optimal depth, or -1 for any depth
+     *  @Return LongStream: The packed boards (sequential, it shares this generator's Random)
+     */
+    public LongStream stream(long count, int depth) {
+        if (depth >= 0 && count(depth) == 0) {
+            throw new IllegalArgumentException("No board is exactly " + depth + " moves from the goal");
+        }
+        return LongStream.generate(() -> depth < 0 ? next() : next(depth)).limit(count);
+    }
+
+    /*
+     *  Writes boards one per line in the "b12 345 678" form, ready for the batch command
+     *  @Param Path: The file to write
+     *  @Param long: How many boards
+     *  @Param int: Their exact optimal depth, or -1 for any depth
+     */
+    public void write(Path file, long count, int depth) throws IOException {
+        // Checks the depth before the file is created
+        PrimitiveIterator.OfLong boards = stream(count, depth).iterator();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            // One reused line instead of a String per board
+            char[] line = new char[12];
+            line[3] = ' ';
+            line[7] = ' ';
+            line[11] = '\n';
+            while (boards.hasNext()) {
+                long state = boards.nextLong();
+                for (int cell = 0; cell < 9; cell++) {
+                    int tile = PackedBoard.tileAt(state, cell);
+                    line[cell + cell / 3] = tile == 0 ? 'b' : (char) ('0' + tile);
+                }
+                writer.write(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *  Load generator for SolverServer: several connections each send setState/solve pairs of uniformly random boards
+ *  (InstanceGenerator) and time every solve from the moment it's sent to its answer. Run with
+ *      java LoadClient [port] [connections] [solves per connection] [in flight per connection] solver...
+ *  e.g. "java LoadClient 8642 8 2000 4 A-star h2 bucket", then it prints throughput and latency percentiles.
+ *  More than one solve in flight per connection is what lets the server fill its batches.
+ */
+public final class LoadClient {
+
+    // Latencies of every solve in nanoseconds, filled in by the connection threads
+    private final long[] latencies;
+    private final AtomicLong busy = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private LoadClient(int total) {
+        latencies = new long[total];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SolverServer.PORT;
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int solves = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int inFlight = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        String solver = args.length > 4 ? String.join(" ", Arrays.copyOfRange(args, 4, args.length)) : "A-star h2";
+
+        LoadClient client = new LoadClient(connections * solves);
+        Thread[] threads = new Thread[connections];
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int first = c * solves;
+            // Every connection draws its own boards, the same ones on every run
+            InstanceGenerator generator = new InstanceGenerator(69 + c);
+            threads[c] = new Thread(() -> client.run(port, generator, solver, first, solves, inFlight));
+            threads[c].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        client.report(System.nanoTime() - start, solver);
+    }
+
+    /*
+     *  One connection's share of the load, keeping up to inFlight solves sent ahead of their answers
+     *  @Param int: Index of this connection's first solve in latencies
+     *  @Param int: Number of solves
+     */
+    private void run(int port, InstanceGenerator generator, String solver, int first, int solves, int inFlight) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            // Solve i is line 2i + 2 of the connection (after its setState), sent at sentAt[i]
+            long[] sentAt = new long[solves];
+            int sent = 0;
+            int answered = 0;
+
+            while (answered < solves) {
+                // Top up the solves in flight, then wait for an answer
+                if (sent < solves && sent - answered < inFlight) {
+                    out.write("setState " + PackedBoard.toString(generator.next()) + "\nsolve " + solver + "\n");
+                    sentAt[sent++] = System.nanoTime();
+                    if (sent < solves && sent - answered < inFlight) continue;
+                    out.flush();
+                }
+
+                String line = in.readLine();
+                if (line == null) throw new IOException("The server closed the connection");
+                int colon = line.indexOf(':');
+                int number = Integer.parseInt(line.substring(0, colon));
+                // Odd lines are setState, their "ok" needs no timing
+                if (number % 2 == 1) {
+                    if (!line.endsWith("ok")) failed.incrementAndGet();
+                    continue;
+                }
+                int solve = number / 2 - 1;
+                latencies[first + solve] = System.nanoTime() - sentAt[solve];
+                if (line.endsWith(": busy")) busy.incrementAndGet();
+                else if (line.contains(": error")) failed.incrementAndGet();
+                answered++;
+            }
+            out.write("quit\n");
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+            failed.incrementAndGet();
+        }
+    }
+
+    /* Prints throughput and the latency percentiles */
+    private void report(long elapsed, String solver) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double seconds = elapsed / 1e9;
+        System.out.printf(Locale.ROOT, "%d solves (%s) in %.2f s: %.0f solves/s, %d busy, %d failed%n",
+                sorted.length, solver, seconds, sorted.length / seconds, busy.get(), failed.get());
+        System.out.printf(Locale.ROOT, "latency ms: p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    /* Nearest rank percentile of sorted nanoseconds, in milliseconds */
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
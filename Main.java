@@ -1,18 +1,39 @@
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 
 public class Main {
 
     /* Instance variables */
 
-    // Variable to check if the solution has been found
-    private static boolean found = false;
-    // Variable that initially sets the max number of nodes, may be changed with maxNodes(n) command
+    // Variable that initially sets the max number of nodes, may be changed with maxNodes(n) command.
+    // Each solve copies it into its own SearchContext, which also tracks the nodes visited and whether it's found
     private static int maxNodes = 69420;
-    // Variable to keep track of the total number of nodes visited in one search
-    private static int nodesVisited = 0;
+    // Generations local beam search goes through before giving up, unless the solve command says otherwise
+    static final int BEAM_GENERATIONS = 1000;
+    // Every solver name the solve command knows, the word after "solve"
+    private static final Set<String> SOLVERS = Set.of("A-star", "IDA-star", "EPEA-star", "SMA-star", "WA-star",
+            "ARA-star", "oracle", "external", "bidirectional", "HDA-star", "beam");
+    // Time limit of every solve, may be changed with timeLimit(ms) command, null for none
+    private static Duration timeLimit = null;
     // Variable to keep track of the number of commands entered to test program
     private static int numCommands = 1;
+    // Format of the metrics line printed after every solve (off, json or csv), set with the metrics command
+    private static String metricsFormat = "off";
+    // Uniform random boards for "randomizeState uniform", seeded like randomizeState on first use
+    private static InstanceGenerator generator = null;
+    // Solutions of earlier solves, null unless switched on with the cache command
+    private static SolutionCache solutionCache = null;
+    // Bytes of output that build up before they're written, instead of writing on every print
+    private static final int OUTPUT_BUFFER = 1 << 16;
+    // In quiet mode only the solution (and metrics) lines are printed, one per solve
+    private static boolean quiet = false;
+    // Where the solution and metrics lines go, the real output even when quiet mode silences System.out
+    private static PrintStream solutions = System.out;
+    // Order in which the searches try the four moves (packed direction codes)
+    private static final int[] SEARCH_ORDER = {PackedBoard.UP, PackedBoard.DOWN, PackedBoard.RIGHT, PackedBoard.LEFT};
 
     /*
      *  Method to check if the current board is solvable
@@ -53,132 +74,127 @@ public class Main {
      * Note that random moves that are invalid will not take place, so the result will be a board that can be solved
      */
     public static Board randomizeState(int n) {
-        // Array of valid Directions
-        String[] validDirections = {"up", "down", "right", "left"};
-        Board board = new Board();
-        board.resetBoard();
+        // Walk on the packed board so no Boards are created until the very end
+        long state = PackedBoard.GOAL;
         // Set a seed so that the same numbers are generated randomly (as per instructions)
         Random rand = new Random(69);
 
         for (int i = 0; i < n; i++) {
-            int randomNum = rand.nextInt(4);
-            // Check if the move is valid to avoid spam of ("Invalid Move") everytime random move is generated
-            if (board.validMove(validDirections[randomNum])) {
-                board = board.move(validDirections[randomNum]);
+            long next = PackedBoard.move(state, SEARCH_ORDER[rand.nextInt(4)]);
+            // Invalid moves simply don't take place
+            if (next != PackedBoard.INVALID) {
+                state = next;
             }
         }
 
-        return board;
+        return new Board(state);
     }
 
     /*
-     *  Method to solve A-Star using either hamming or manhattan distances as heuristic
-     *  @Param String: h1 || h2, the heuristic function being used
+     *  Method to solve A-Star using one of the heuristics, from hamming distance (h1) to walking distance (h5)
+     *  @Param String: h1 .. h5, the heuristic function being used
      *  @Param Board: The current state of the board when trying to solve the puzzle
      *  @Return Board: The solved Board if the puzzle is solvable, used to backtrack sequence of moves
      *  Sources referred: https://gist.github.com/raymondchua/8064159
      */
     public static Board solveAStar(String heuristic, Board current) {
+        return solveAStar(heuristic, current, "heap", new SearchContext(maxNodes));
+    }
+
+    /*
+     *  Same as above, but with the kind of open list and the search context picked by the caller
+     *  @Param String: heap || bucket, the OpenList implementation ordering the nodes
+     *  @Param SearchContext: Node limit and counters of this solve
+     */
+    public static Board solveAStar(String heuristic, Board current, String openListKind, SearchContext context) {
         if (current.misplacedTiles() == 0) {
-            found = true;
+            context.setFound(true);
             return current;
         }
 
-        String[] validDirections = {"up", "down", "right", "left"};
+        // Using the heuristic, set the current board. Children get their h incrementally from their parent's h
+        int code = PackedBoard.heuristicCode(heuristic);
+        SearchMetrics metrics = context.getMetrics();
+        int rootEstimate = current.getHeuristic(heuristic);
+        metrics.heuristicCall();
 
-        // Using the heuristic, set the current board
-        current.setEvaluation(current.getCurrentLevel(), heuristic);
+        // Closed set (packed state -> best g expanded) and open list used in A-Star search, with Evaluation function as priority.
+        // Nodes are indices into a NodePool, Boards are only made for the moves of the solution at the end
+        StateTable visitedNodes = new StateTable(Math.min(context.getMaxNodes(), 1 << 12));
+        NodePool nodes = new NodePool(Math.min(context.getMaxNodes(), 1 << 12));
+        OpenList pq = OpenList.create(openListKind);
 
-        // HashSet and PriorityQueue used in A-Star search, with Evaluation function as priority
-        Set<String> visitedNodes = new HashSet<>();
-        Queue<Board> pq = new PriorityQueue<>(Comparator.comparingInt(Board::getEvaluation));
-
-        pq.add(current);
+        pq.add(nodes.add(current.getState(), 0, rootEstimate, NodePool.ROOT, 0), rootEstimate, 0);
+        // The expanded node with the lowest h (fewest moves on ties), handed back if the search is stopped early
+        int closest = 0;
 
         // Start of BFS-like A* search. This will continue until I found a solution,
         // the queue is empty, or until max nodes has been reached
         while(!pq.isEmpty()) {
-            Board parent = pq.poll();
-            // Add the current state to my set
-            visitedNodes.add(parent.getBoard());
-            nodesVisited++; // Every board I visit increases the nodes visited by one
-
-            /* The current node of the tree is equal to the goal state */
-            if (parent.misplacedTiles() == 0) {
-                return parent;
+            int parent = pq.poll();
+            long parentState = nodes.state(parent);
+            int parentLevel = nodes.g(parent);
+
+            // Skip stale queue entries, this state was already expanded at the same or a lower depth
+            int bestLevel = visitedNodes.get(parentState);
+            if (bestLevel != StateTable.MISSING && bestLevel <= parentLevel) {
+                metrics.duplicate();
+                continue;
+            }
+
+            // Add the current state to my set, along with the depth it was reached at
+            visitedNodes.put(parentState, parentLevel);
+            context.visitNode(); // Every board I visit increases the nodes visited by one
+            metrics.observeClosed(visitedNodes.size());
+
+            /* The current node of the tree is equal to the goal state, replay its moves into Boards for printOutput */
+            if (parentState == PackedBoard.GOAL) {
+                context.setFound(true);
+                return current.applyMoves(nodes.path(parent), parentLevel);
             }
 
             /* If my maxNodes has been reached */
-            if (visitedNodes.size() > maxNodes) {
+            if (visitedNodes.size() > context.getMaxNodes()) {
                 break;
             }
 
-            // For all the children of my current Board
-            for (String direction : validDirections) {
-
-                // Get the successor by moving the current board
-                if (parent.validMove(direction)) {
-                    Board child = parent.move(direction);
-
-                    // Avoid loops
-                    if (visitedNodes.contains(child.getBoard())) continue;
-
-                    /* Assign the values of the children */
-                    int currentLevel = parent.getCurrentLevel();
-                    child.setPreviousMove(direction);
-                    child.setParent(parent);
-                    child.setEvaluation(currentLevel + 1, heuristic);
-
-                    // Add the successor back into priority queue, which automatically sorts it based on evaluation
-                    pq.add(child);
-                }
+            /* Out of time or cancelled, the partial result is the closest board so far */
+            int estimate = nodes.estimate(parent);
+            if (estimate < nodes.estimate(closest) || (estimate == nodes.estimate(closest) && parentLevel < nodes.g(closest))) {
+                closest = parent;
+            }
+            if (context.shouldStop()) {
+                return current.applyMoves(nodes.path(closest), nodes.g(closest));
             }
-        }
 
-        return current;
-    }
+            // For all the children of my current Board
+            metrics.expanded();
+            for (int direction : SEARCH_ORDER) {
+
+                // Get the successor by moving the packed board, only valid and unvisited children become nodes
+                long childState = PackedBoard.move(parentState, direction);
+                if (childState == PackedBoard.INVALID) continue;
+
+                // Avoid loops, unless this path reaches an expanded state with fewer moves
+                int childLevel = visitedNodes.get(childState);
+                if (childLevel != StateTable.MISSING && childLevel <= parentLevel + 1) {
+                    metrics.duplicate();
+                    continue;
+                }
 
-    /* Backtrack method, per TA suggestion, to avoid infinite loops */
-    public static boolean backtrack(String direction, Board board) {
-        Map<String, Integer> map = new HashMap<>();
-        map.put("up", 1);
-        map.put("down", 1);
-        map.put("left", 2);
-        map.put("right", 2);
-
-        // If the current move isn't the same as the previous move and the two moves aren't opposite
-        return !direction.equals(board.getPreviousMove()) &&
-                (map.get(direction).equals(map.get(board.getPreviousMove())));
-    }
+                /* Assign the values of the children */
+                int childEstimate = estimate + PackedBoard.heuristicDelta(code, parentState, direction);
+                metrics.heuristicCall();
+                metrics.generated();
 
-    /*
-     *  Helper method a list of the successors of the current board
-     *  @Param Board: The current board that I want to get the successors of
-     *  @Return List<Board>: The children of the board in a list form
-     */
-    public static List<Board> getChildren(Board current) {
-        String[] directions = {"up", "down", "left", "right"};
-        List<Board> children = new ArrayList<>();
-        for (String direction : directions) {
-            // I want to have both a child that was produced with a valid move,
-            // and it can't be the opposite of the parent or else I will have an infinite loop
-            if (current.validMove(direction) && !backtrack(direction, current)) {
-                nodesVisited++; // For every child I visit, increase the nodes visited
-
-                Board child = current.move(direction);
-                child.setEvaluation(current.getCurrentLevel() + 1, "h2");
-                child.setParent(current);
-                child.setPreviousMove(direction);
-
-                // If one of my children is the solved board, then I can set my found variable to true
-                if (child.misplacedTiles() == 0) found = true;
-
-                // Add the child to my list of children
-                children.add(child);
+                // Add the successor back into the open list, which automatically sorts it based on evaluation
+                int child = nodes.add(childState, parentLevel + 1, childEstimate, parent, direction);
+                pq.add(child, parentLevel + 1 + childEstimate, parentLevel + 1);
             }
+            metrics.observeOpen(pq.size());
         }
 
-        return children;
+        return current;
     }
 
     /*
@@ -191,62 +207,152 @@ public class Main {
      *  Sources: Textbook - Intro to AI 3rd Edition
      */
     public static Board solveBeam(int k, Board current) {
+        return solveBeam(k, BEAM_GENERATIONS, current, new SearchContext(maxNodes));
+    }
+
+    /*
+     *  Same as above, with a cap on the number of generations and the search context picked by the caller.
+     *  Every generation lives in fixed size arrays: the k boards of the beam and their (at most 4k) children.
+     *  The k best children by f are picked with a quickselect instead of sorting or queueing all of them, and
+     *  children already seen in this or an earlier generation are dropped, so the beam never refills with the
+     *  same boards and the search always ends (solved, out of new boards, generations or nodes)
+     *  @Param int: The maximum number of generations
+     *  @Param SearchContext: Node limit and counters of this solve
+     */
+    public static Board solveBeam(int k, int generations, Board current, SearchContext context) {
         if (current.misplacedTiles() == 0) {
-            found = true;
+            context.setFound(true);
             return current;
         }
-
-        // Need two priorityQueues, one for the current set of children and one to get next K best
-        Queue<Board> pq = new PriorityQueue<>(Comparator.comparingInt(Board::getEvaluation));
-        Queue<Board> pq1 = new PriorityQueue<>(Comparator.comparingInt(Board::getEvaluation));
-
-        List<Board> children = getChildren(current);
-
-        // Using streams, add each board to my first queue
-        children.stream().forEach(kid -> pq.add(kid));
-
-        while (current.misplacedTiles() != 0) {
-            /* If I still have room to add boards to my queue (haven't reached k best yet), add! */
-            if (k >= pq.size()) {
-                for (Board b : pq) {
-                    pq1.add(b);
+        SearchMetrics metrics = context.getMetrics();
+        int rootEstimate = current.getHeuristic("h2");
+        metrics.heuristicCall();
+
+        // Boards that made it into a beam, for the moves at the end, and every board seen so far (-> its generation)
+        NodePool nodes = new NodePool(Math.min(k * 64, 1 << 12));
+        StateTable seen = new StateTable(Math.min(k * 64, 1 << 12));
+        seen.put(current.getState(), 0);
+
+        // The beam (nodes) and its children: board, Manhattan distance, parent node and move
+        int[] beam = {nodes.add(current.getState(), 0, rootEstimate, NodePool.ROOT, 0)};
+        int width = 1;
+        long[] childStates = new long[4 * k];
+        int[] childEstimates = new int[4 * k];
+        int[] childLinks = new int[4 * k];
+        // Selection keys, Manhattan distance << 32 | child index, so ties always go the same way
+        long[] keys = new long[4 * k];
+
+        for (int generation = 1; generation <= generations; generation++) {
+            int count = 0;
+            for (int i = 0; i < width; i++) {
+                int parent = beam[i];
+                long state = nodes.state(parent);
+                metrics.expanded();
+                for (int direction : SEARCH_ORDER) {
+                    long child = PackedBoard.move(state, direction);
+                    if (child == PackedBoard.INVALID) continue;
+                    context.visitNode(); // For every child I visit, increase the nodes visited
+                    metrics.generated();
+
+                    // Drop children seen before, whether in an earlier generation or earlier in this one
+                    if (seen.get(child) != StateTable.MISSING) {
+                        metrics.duplicate();
+                        continue;
+                    }
+                    seen.put(child, generation);
+                    int estimate = nodes.estimate(parent) + PackedBoard.heuristicDelta(PackedBoard.H2, state, direction);
+                    metrics.heuristicCall();
+
+                    if (child == PackedBoard.GOAL) {
+                        context.setFound(true);
+                        int goal = nodes.add(child, generation, 0, parent, direction);
+                        return current.applyMoves(nodes.path(goal), generation);
+                    }
+                    childStates[count] = child;
+                    childEstimates[count] = estimate;
+                    childLinks[count] = parent << 2 | direction;
+                    keys[count] = (long) estimate << 32 | count;
+                    count++;
                 }
             }
-
-            // Else get the best K out of all the children I have and can find the top k
-            else {
-                for (int i = 0; i < k; i++) {
-                    pq1.add(pq.poll());
-                }
+            metrics.observeOpen(count);
+            metrics.observeClosed(seen.size());
+
+            // Every child is as deep as the others, so the best f are the lowest estimates, put first by quickselect
+            if (count == 0 || context.exceededMaxNodes()) break;
+            width = Math.min(k, count);
+            selectSmallest(keys, count, width);
+            Arrays.sort(keys, 0, width);
+            if (beam.length < width) beam = new int[k];
+            for (int i = 0; i < width; i++) {
+                int c = (int) keys[i];
+                beam[i] = nodes.add(childStates[c], generation, childEstimates[c], childLinks[c] >> 2, childLinks[c] & 3);
             }
 
-            // Reset the temp queue for next iteration
-            pq.clear();
+            // Out of time or cancelled: the beam is sorted, so its first board is the closest one
+            if (context.shouldStop()) return current.applyMoves(nodes.path(beam[0]), generation);
+        }
 
-            while (!pq1.isEmpty()) {
-                // Similar approach, getting the best of the best
-                children = getChildren(pq1.poll());
+        return current;
+    }
 
-                // If one of my children were the correct board, then look for that child
-                if (found) {
-                    for (Board b : children) {
-                        if (b.misplacedTiles() == 0) return b;
-                    }
-                }
+    /* The generation cap of a "solve beam k [generations]" command, BEAM_GENERATIONS if it has none */
+    static int beamGenerations(String[] command) {
+        return command.length > 3 && Character.isDigit(command[3].charAt(0)) ? Integer.parseInt(command[3]) : BEAM_GENERATIONS;
+    }
 
-                // Otherwise, add my children to my queue and restart the process
-                for (Board c : children) {
-                    pq.add(c);
+    /*
+     *  Quickselect, moves the n smallest of the first count keys to the front (in no particular order)
+     *  @Param long[]: The keys, all different
+     *  @Param int: How many of them are used
+     *  @Param int: n, 1 <= n <= count
+     *  Sources: Hoare, "Algorithm 65: Find" (1961)
+     */
+    static void selectSmallest(long[] keys, int count, int n) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            // Median of three pivot, so sorted runs of keys don't make it quadratic
+            int middle = (low + high) >>> 1;
+            long pivot = Math.max(Math.min(keys[low], keys[middle]), Math.min(Math.max(keys[low], keys[middle]), keys[high]));
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    long swap = keys[i];
+                    keys[i++] = keys[j];
+                    keys[j--] = swap;
                 }
             }
+            // keys[low..j] <= pivot <= keys[i..high], carry on in the side holding the n-th smallest
+            if (n - 1 <= j) high = j;
+            else if (n - 1 >= i) low = i;
+            else return;
         }
+    }
+
+    /* Helper method to get the sequence of moves that led from an earlier board of its chain to a board */
+    public static List<String> getMoves(Board start, Board current) {
+        List<String> output = new ArrayList<>();
 
-        // Will never be reached because the algorithm will break if the board is solved
-        return null;
+        /* Like a linked list, iterate up the tree, then flip the moves once instead of inserting each at the front */
+        for (; current != start && current.hasPrev(); current = current.getParent()) {
+            output.add(current.getPreviousMove());
+        }
+        Collections.reverse(output);
+
+        return output;
     }
 
-    /* Helper method to print the output of my board after attempting to solve it */
-    public static void printOutput(Board current) {
+    /* Helper method to get the sequence of moves that led to a board */
+    public static List<String> getMoves(Board current) {
+        return getMoves(null, current);
+    }
+
+    /* Helper method to print the output of my board after attempting to solve it with the given search context */
+    public static void printOutput(Board current, SearchContext context) {
         if (current == null) System.out.println("Unsolved Board");
         int counter = 0;
         String currentBoard = current.getBoard();
@@ -265,77 +371,309 @@ public class Main {
         }
 
         // If the number of nodes I have visited in total is greater than my threshold
-        else if (nodesVisited > maxNodes) {
+        else if (context.exceededMaxNodes()) {
             System.out.println("Number of nodes has been exceeded :(");
         }
 
+        // Stopped by the time limit (or cancelled), show how close it got
+        else if (context.isStopped() && !context.isFound()) {
+            System.out.println("Solve stopped, " + context.stopReason() + " :( The closest board it reached:");
+            current.printState();
+            List<String> moves = getMoves(current);
+            System.out.println("Moves To It: " + (moves.isEmpty() ? "none" : String.join(", ", moves).toUpperCase()));
+            System.out.println("Nodes Expanded: " + context.getMetrics().getNodesExpanded());
+        }
+
+        // The solver gave up without reaching the goal (an unsolvable board, or beam out of boards or generations)
+        else if (!context.isFound() && current.getState() != PackedBoard.GOAL) {
+            System.out.println("No solution found :(");
+        }
+
         // No errors emerged in solving the puzzle
         else {
             System.out.println("Congrats! You've solved the puzzle! Here's the output information:");
             System.out.println("The solved board state: ");
             current.printState();
-            List<String> output = new ArrayList<>();
+            printMoves(getMoves(current));
+        }
+    }
 
-            /* Like a linked list, iterate up the tree but in reverse order to print out sequence */
-            while (current.hasPrev()) {
-                output.add(0, current.getPreviousMove());
-                current = current.getParent();
+    /* Prints how many moves a solution took and what they were */
+    public static void printMoves(List<String> output) {
+        /* If there are moves in my list */
+        if (output.size() != 0) {
+            // Return the number of moves the puzzle was solved in (with correct grammar)
+            if (output.size() == 1) {
+                System.out.println("This Was Solved In 1 Move! Nice!");
+            } else {
+                System.out.println("This Was Solved In " + output.size() + " Moves");
             }
 
-            /* If there are moves in my list */
-            if (output.size() != 0) {
-                // Return the number of moves the puzzle was solved in (with correct grammar)
-                if (output.size() == 1) {
-                    System.out.println("This Was Solved In 1 Move! Nice!");
-                } else {
-                    System.out.println("This Was Solved In " + output.size() + " Moves");
-                }
+            System.out.print("Sequence of Moves: ");
 
-                System.out.print("Sequence of Moves: ");
+            /* Printing out the sequence of moves */
+            for (int i = 0; i < output.size() - 1; i++) {
+                System.out.print(output.get(i).toUpperCase() + ", ");
+            }
 
-                /* Printing out the sequence of moves */
-                for (int i = 0; i < output.size() - 1; i++) {
-                    System.out.print(output.get(i).toUpperCase() + ", ");
-                }
+            // Print out the last line, with a space for sexiness
+            System.out.println(output.get(output.size() - 1).toUpperCase());
+        }
 
-                // Print out the last line, with a space for sexiness
-                System.out.println(output.get(output.size() - 1).toUpperCase());
-            }
+        // If there are no moves in my output, then the board is already solved
+        else {
+            System.out.println("The board was already solved! Lucky you!");
+        }
+    }
 
-            // If there are no moves in my output, then the board is already solved
-            else {
-                System.out.println("The board was already solved! Lucky you!");
-            }
+    /*
+     *  printOutput for boards of other sizes, which come back from GridSolver as moves instead of a parent chain
+     *  @Param GridBoard: The board that was solved
+     *  @Param int[]: The moves that solved it, null if it wasn't solved
+     *  @Param SearchContext: The context of the solve
+     */
+    public static void printGridOutput(GridBoard start, int[] moves, SearchContext context) {
+        if (!start.isSolvable()) {
+            System.out.println("This board is unsolvable because the parity of its tiles doesn't match the blank's position");
+        } else if (context.exceededMaxNodes()) {
+            System.out.println("Number of nodes has been exceeded :(");
+        } else if (context.isStopped() && !context.isFound()) {
+            System.out.println("Solve stopped, " + context.stopReason() + " :( after expanding "
+                    + context.getMetrics().getNodesExpanded() + " nodes");
+        } else if (moves == null) {
+            System.out.println("Unsolved Board");
+        } else {
+            System.out.println("Congrats! You've solved the puzzle! Here's the output information:");
+            System.out.println("The solved board state: ");
+            start.applyMoves(moves).printState();
+            printMoves(moveNames(moves));
+        }
+    }
+
+    /* One result line of a GridSolver solve, in the same format as BatchSolver.resultLine */
+    public static String gridResultLine(String prefix, GridBoard start, int[] moves, SearchContext context) {
+        if (!start.isSolvable()) return prefix + "unsolvable";
+        if (moves == null) return prefix + failure(context);
+        return BatchSolver.movesLine(prefix, moveNames(moves));
+    }
+
+    /* Names of a sequence of direction codes */
+    private static List<String> moveNames(int[] moves) {
+        List<String> names = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            names.add(PackedBoard.DIRECTIONS[move]);
+        }
+        return names;
+    }
+
+    /* Switches the solution cache of Main.solve on (or off with null) for code that doesn't go through main, e.g. SolverServer */
+    public static void setSolutionCache(SolutionCache cache) {
+        solutionCache = cache;
+    }
+
+    /* The end of a result line for a board that wasn't solved, shared with BatchSolver */
+    public static String failure(SearchContext context) {
+        if (context.exceededMaxNodes()) return "number of nodes exceeded";
+        return context.isStopped() ? context.stopReason() : "not solved";
+    }
+
+    /* Makes n random moves from the solved board of a size, the same walk randomizeState does on 3x3 boards */
+    public static GridBoard randomizeGrid(Grid grid, int n) {
+        GridBoard board = GridBoard.goal(grid);
+        // Set a seed so that the same numbers are generated randomly (as per instructions)
+        Random rand = new Random(69);
+
+        for (int i = 0; i < n; i++) {
+            GridBoard next = board.move(SEARCH_ORDER[rand.nextInt(4)]);
+            // Invalid moves simply don't take place
+            if (next != null) board = next;
         }
+        return board;
+    }
+
+    /* Prints the metrics of a solve as one JSON or CSV line, if metrics are switched on */
+    public static void printMetrics(String solver, SearchContext context) {
+        switch (metricsFormat) {
+            case "json" -> solutions.println(context.getMetrics().toJson(solver));
+            case "csv" -> solutions.println(context.getMetrics().toCsv(solver));
+        }
+    }
+
+    /*
+     *  Runs the solver named in a solve command
+     *  @Param String[]: The split command, e.g. {"solve", "A-star", "h2"}
+     *  @Param Board: The board to solve
+     *  @Param SearchContext: Node limit and counters of this solve
+     *  @Return Board: Whatever the solver returned, ready for printOutput
+     */
+    public static Board solve(String[] command, Board current, SearchContext context) {
+        // An optional last word picks the open list ("heap" by default, or "bucket")
+        String openList = command.length > 3 ? command[3] : "heap";
+
+        // Optimal solvers look the board (or its mirror) up first, and store what they find
+        String solver = String.join(" ", Arrays.copyOfRange(command, 1, command.length));
+        SolutionCache cache = solutionCache;
+        boolean cacheable = cache != null && SolutionCache.isCacheable(solver)
+                && PackedBoard.isSolvable(current.getState());
+
+        context.getMetrics().start();
+        int[] cached = cacheable ? cache.get(solver, current.getState()) : null;
+        if (cached != null) {
+            context.setFound(true);
+            Board result = current.applyMoves(cached, cached.length);
+            context.getMetrics().stop();
+            return result;
+        }
+
+        Board result = switch (command[1]) {
+            case "A-star" -> solveAStar(command[2], current, openList, context);
+            case "IDA-star" -> IDAStar.solve(command[2], current, context);
+            case "EPEA-star" -> PartialExpansionAStar.solve(command[2], current, openList, context);
+            // For SMA* the optional last word is the pool size, maxNodes by default
+            case "SMA-star" -> SMAStar.solve(command[2], current, command.length > 3 ?
+                    Integer.parseInt(command[3]) : context.getMaxNodes(), context);
+            // Weighted searches take their weight first: "WA-star w [h]" and "ARA-star w millis [h]"
+            case "WA-star" -> AnytimeAStar.solveWeighted(command.length > 3 ? command[3] : "h2",
+                    Double.parseDouble(command[2]), current, command.length > 4 ? command[4] : "heap", context);
+            case "ARA-star" -> AnytimeAStar.solveAnytime(command.length > 4 ? command[4] : "h2",
+                    Double.parseDouble(command[2]), Long.parseLong(command[3]), current, context);
+            case "oracle" -> DistanceOracle.solve(current, context);
+            // Breadth first search with its layers on disk, the optional word is the directory for them
+            case "external" -> ExternalSearch.solve(current, command.length > 2 ? Path.of(command[2]) : null, context);
+            case "bidirectional" -> BidirectionalSearch.solve(command[2], current, context);
+            // For HDA* the optional last word is the number of worker threads instead
+            case "HDA-star" -> ParallelAStar.solve(command[2], current, command.length > 3 ?
+                    Integer.parseInt(command[3]) : Runtime.getRuntime().availableProcessors(), context);
+            // Beam picks its boards without an open list, its optional last word is the generation cap
+            case "beam" -> solveBeam(Integer.parseInt(command[2]), beamGenerations(command), current, context);
+            default -> throw new IllegalArgumentException("Unknown solver " + command[1]);
+        };
+        context.getMetrics().stop();
+
+        if (cacheable && context.isFound()) cache.put(solver, current.getState(), movesBetween(current, result));
+        return result;
+    }
+
+    /* Direction codes of the moves from a board to a solution built on it (through the solution's parents) */
+    private static int[] movesBetween(Board start, Board end) {
+        int[] moves = new int[end.getCurrentLevel() - start.getCurrentLevel()];
+        for (int i = moves.length - 1; i >= 0; i--, end = end.getParent()) {
+            moves[i] = PackedBoard.direction(end.getPreviousMove());
+        }
+        return moves;
+    }
+
+    /* Check whether a word is the name of a solver, see SOLVERS */
+    public static boolean isSolver(String name) {
+        return SOLVERS.contains(name);
+    }
+
+    /* Get the name of the solver (and heuristic) a solve command uses, for the console */
+    public static String describeSolver(String[] command) {
+        // The oracle doesn't search, so it has no further arguments
+        if (command[1].equals("oracle")) return "THE PRECOMPUTED DISTANCE ORACLE";
+        if (command[1].equals("external")) return "EXTERNAL MEMORY BREADTH FIRST SEARCH";
+
+        // Determine which heuristic I want to use (If I use A*), the weighted searches name it after their weight
+        String word = switch (command[1]) {
+            case "WA-star" -> command.length > 3 ? command[3] : "h2";
+            case "ARA-star" -> command.length > 4 ? command[4] : "h2";
+            default -> command[2];
+        };
+        String heuristic = switch (word) {
+            case "h1" -> "HAMMING DISTANCE HEURISTIC";
+            case "h3" -> "PATTERN DATABASE HEURISTIC";
+            case "h4" -> "LINEAR CONFLICT HEURISTIC";
+            case "h5" -> "WALKING DISTANCE HEURISTIC";
+            default -> "MANHATTAN DISTANCE HEURISTIC";
+        };
+
+        return switch (command[1]) {
+            case "A-star" -> "A-STAR USING " + heuristic;
+            case "IDA-star" -> "IDA-STAR USING " + heuristic;
+            case "EPEA-star" -> "PARTIAL EXPANSION A-STAR (EPEA*) USING " + heuristic;
+            case "SMA-star" -> "MEMORY BOUNDED A-STAR (SMA*) USING " + heuristic;
+            case "WA-star" -> "WEIGHTED A-STAR (W = " + command[2] + ") USING " + heuristic;
+            case "ARA-star" -> "ANYTIME A-STAR (W = " + command[2] + ", " + command[3] + " MS) USING " + heuristic;
+            case "HDA-star" -> "PARALLEL (HASH DISTRIBUTED) A-STAR USING " + heuristic;
+            case "bidirectional" -> command[2].equals("bfs") ? "BIDIRECTIONAL BREADTH FIRST SEARCH"
+                    : "BIDIRECTIONAL A-STAR USING " + heuristic;
+            default -> "LOCAL BEAM SEARCH";
+        };
     }
 
     /* Main method to run code, reading command file through command line */
     public static void main(String[] args) {
-        try {
-            // Read the input scanner
-            FileReader file = new FileReader(args[0]);
-            Scanner scanner = new Scanner(file);
-
+        // Every print goes through one buffered stream, written out when the buffer fills up and at the end.
+        // With "--quiet" after the file name, System.out goes nowhere and only the solution lines reach the output
+        PrintStream sink = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                OUTPUT_BUFFER), false);
+        quiet = args.length > 1 && args[1].equals("--quiet");
+        solutions = sink;
+        System.setOut(quiet ? new PrintStream(OutputStream.nullOutputStream()) : sink);
+
+        // Read the input file as a stream of lines
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]))) {
             // Array of commands that will be run in my input Text file
             String[] command;
             // The board we will be working with
             Board currentState = new Board();
+            // The board when working with another size (setState 4x4 ...), null while working with 3x3 boards
+            GridBoard gridState = null;
 
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
                 // Use delimiters to split each command and their inputs, per TA suggestion
-                command = line.split(" ");
+                command = tokens(line);
                 switch(command[0]) {
                     case "randomizeState" -> {
                         System.out.println("Command #" + numCommands++ + " -> Randomize State");
                         System.out.println("RANDOMIZING..." + "\n");
+                        // "randomizeState uniform [depth]" draws from every solvable board (of that optimal depth)
+                        if (command[1].equals("uniform")) {
+                            if (generator == null) generator = new InstanceGenerator(69);
+                            gridState = null;
+                            currentState = new Board(command.length > 2 ? generator.next(Integer.parseInt(command[2]))
+                                    : generator.next());
+                            break;
+                        }
                         int n = Integer.parseInt(command[1]);
-                        currentState = randomizeState(n);
+                        // An optional size after n, e.g. "randomizeState 40 4x4"
+                        if (command.length > 2) {
+                            Grid grid;
+                            try {
+                                grid = Grid.parse(command[2]);
+                            } catch (IllegalArgumentException e) {
+                                System.out.println(e.getMessage() + "\n");
+                                break;
+                            }
+                            gridState = randomizeGrid(grid, n);
+                        }
+                        else {
+                            gridState = null;
+                            currentState = randomizeState(n);
+                        }
                         break;
                     }
                     case "setState" -> {
                         System.out.println("Command #" + numCommands++ + " -> Set State");
+                        // Other sizes start with their size, e.g. "setState 4x4 b 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15"
+                        if (command[1].indexOf('x') > 0) {
+                            try {
+                                gridState = GridBoard.parse(command, 1);
+                            } catch (IllegalArgumentException e) {
+                                System.out.println(e.getMessage() + "\n");
+                                break;
+                            }
+                            if (!gridState.isSolvable()) {
+                                System.out.println("WARNING... THIS STATE IS NOT SOLVABLE!!");
+                            } else {
+                                System.out.println("GENERATING STATE...");
+                                gridState.printState();
+                            }
+                            break;
+                        }
+                        gridState = null;
                         currentState.setState(line.substring(9));
 
                         if (!isSolvable(currentState)) {
@@ -350,29 +688,155 @@ public class Main {
                     case "printState" -> {
                         System.out.println("Command #" + numCommands++ + " -> Print State ");
                         System.out.println("PRINTING STATE...");
-                        currentState.printState();
+                        if (gridState != null) gridState.printState();
+                        else currentState.printState();
                         break;
                     }
                     case "move" -> {
                         System.out.println("Command #" + numCommands++ + " -> Move");
                         System.out.println("MOVING BLANK TILE: " + command[1].toUpperCase());
-                        currentState = currentState.move(command[1]);
+                        if (gridState != null) {
+                            int direction = PackedBoard.direction(command[1].toLowerCase());
+                            GridBoard next = direction < 0 ? null : gridState.move(direction);
+                            if (next == null) System.out.println("Invalid Move");
+                            else gridState = next;
+                        }
+                        else currentState = currentState.move(command[1]);
                         System.out.println("");
                         break;
                     }
                     case "solve" -> {
                         System.out.println("Command #" + numCommands++ + " -> Solve");
-                        // Determine which heuristic I want to use (If I use A*)
-                        String heuristic = command[2].equals("h1") ? "HAMMING DISTANCE HEURISTIC" : "MANHATTAN DISTANCE HEURISTIC";
-                        // Determine whether I want to solve the puzzle with A* or Beam Search
-                        String s = command[1].equals("A-star") ? "A-STAR USING " + heuristic : "LOCAL BEAM SEARCH";
-                        System.out.println("SOLVING WITH " + s + "...");
-                        found = false;
-                        nodesVisited = 0;
-                        currentState = command[1].equals("A-star") ?
-                                solveAStar(command[2], currentState) : solveBeam(Integer.parseInt(command[2]), currentState);
-
-                        printOutput(currentState);
+                        System.out.println("SOLVING WITH " + describeSolver(command) + "...");
+                        SearchContext context = new SearchContext(maxNodes, timeLimit);
+                        String solver = String.join(" ", Arrays.copyOfRange(command, 1, command.length));
+
+                        if (gridState != null) {
+                            Grid grid = gridState.getGrid();
+                            if (!GridSolver.supports(command[1])) {
+                                System.out.println("ONLY A-star, IDA-star, beam AND external CAN SOLVE " + grid.width() + "x"
+                                        + grid.height() + " BOARDS\n");
+                                break;
+                            }
+                            GridBoard gridStart = gridState;
+                            int[] moves = GridSolver.solve(command, gridState, context);
+                            if (moves != null) gridState = gridState.applyMoves(moves);
+
+                            if (quiet) {
+                                solutions.println(gridResultLine((numCommands - 1) + ": " + gridStart + " -> ",
+                                        gridStart, moves, context));
+                            }
+                            printGridOutput(gridStart, moves, context);
+                            printMetrics(solver, context);
+                            System.out.println("");
+                            break;
+                        }
+
+                        Board start = currentState;
+                        Board result = solve(command, currentState, context);
+                        // Only a solution becomes the board, the closest board of a stopped solve is just shown
+                        if (context.isFound()) currentState = result;
+
+                        if (quiet) {
+                            solutions.println(BatchSolver.resultLine((numCommands - 1) + ": " + start.getBoard() + " -> ",
+                                    start, result, context));
+                        }
+                        printOutput(result, context);
+                        // The weighted searches say how far from optimal they might be
+                        if ((command[1].equals("WA-star") || command[1].equals("ARA-star")) && context.isFound()) {
+                            System.out.printf(Locale.ROOT, "This Solution Is At Most %.2f Times The Optimal Length%n",
+                                    context.getBound());
+                        }
+                        printMetrics(solver, context);
+                        System.out.println("");
+                    }
+                    case "batch" -> {
+                        System.out.println("Command #" + numCommands++ + " -> Batch");
+                        // The rest of the line is a solve command without the word "solve", e.g. "batch boards.txt A-star h2"
+                        String[] solveCommand = new String[command.length - 1];
+                        solveCommand[0] = "solve";
+                        System.arraycopy(command, 2, solveCommand, 1, command.length - 2);
+                        System.out.println("SOLVING EVERY BOARD IN " + command[1] + " WITH " + describeSolver(solveCommand) + "...");
+                        try {
+                            BatchSolver.run(Path.of(command[1]), solveCommand, maxNodes,
+                                    Runtime.getRuntime().availableProcessors(), solutions);
+                        } catch (IOException e) {
+                            System.out.println("Could not read " + command[1]);
+                        }
+                        System.out.println("");
+                    }
+                    case "distribution" -> {
+                        System.out.println("Command #" + numCommands++ + " -> " + line);
+                        // "distribution [WxH] [directory]", boards at every distance from the goal, layers kept on disk
+                        Grid grid = Grid.parse(command.length > 1 ? command[1] : "3x3");
+                        System.out.println("COUNTING THE BOARDS OF EVERY DEPTH OF " + grid.width() + "x" + grid.height() + "...");
+                        SearchContext context = new SearchContext(maxNodes, timeLimit);
+                        List<Long> counts = ExternalSearch.distribution(grid, command.length > 2 ? Path.of(command[2]) : null,
+                                context);
+                        long total = 0;
+                        for (int depth = 0; depth < counts.size(); depth++) {
+                            System.out.println("Depth " + depth + ": " + counts.get(depth));
+                            total += counts.get(depth);
+                        }
+                        System.out.println((context.isStopped() ? "Stopped, " + context.stopReason() + ", after " : "Total: ")
+                                + total + " boards\n");
+                    }
+                    case "generate" -> {
+                        System.out.println("Command #" + numCommands++ + " -> " + line);
+                        // "generate n file [depth] [seed]", any depth with -1
+                        long count = Long.parseLong(command[1]);
+                        int depth = command.length > 3 ? Integer.parseInt(command[3]) : -1;
+                        long seed = command.length > 4 ? Long.parseLong(command[4]) : 69;
+                        try {
+                            new InstanceGenerator(seed).write(Path.of(command[2]), count, depth);
+                            System.out.println("WROTE " + count + " BOARDS TO " + command[2]);
+                        } catch (IOException e) {
+                            System.out.println("Could not write " + command[2]);
+                        } catch (IllegalArgumentException e) {
+                            System.out.println(e.getMessage());
+                        }
+                        System.out.println("");
+                    }
+                    case "metrics" -> {
+                        System.out.println("Command #" + numCommands++ + " -> " + command[0] + " " + command[1]);
+                        metricsFormat = command[1];
+                        System.out.println("METRICS SET TO: " + metricsFormat.toUpperCase() + "\n");
+                        // CSV lines get their header once, when they are switched on
+                        if (metricsFormat.equals("csv")) System.out.println(SearchMetrics.CSV_HEADER);
+                    }
+                    case "cache" -> {
+                        System.out.println("Command #" + numCommands++ + " -> " + line);
+                        switch (command[1]) {
+                            case "on" -> {
+                                int entries = command.length > 2 ? Integer.parseInt(command[2]) : 10000;
+                                solutionCache = new SolutionCache(entries);
+                                System.out.println("CACHING UP TO " + entries + " SOLUTIONS");
+                            }
+                            case "off" -> {
+                                solutionCache = null;
+                                System.out.println("CACHE SWITCHED OFF");
+                            }
+                            case "stats" -> System.out.println(solutionCache == null ? "CACHE IS OFF"
+                                    : "CACHE: " + solutionCache.stats());
+                            // Loading switches the cache on if it isn't yet
+                            case "load" -> {
+                                if (solutionCache == null) solutionCache = new SolutionCache(10000);
+                                try {
+                                    solutionCache.load(Path.of(command[2]));
+                                    System.out.println("LOADED " + command[2]);
+                                } catch (IOException e) {
+                                    System.out.println("Could not read " + command[2]);
+                                }
+                            }
+                            case "save" -> {
+                                try {
+                                    if (solutionCache != null) solutionCache.save(Path.of(command[2]));
+                                    System.out.println(solutionCache == null ? "CACHE IS OFF" : "SAVED " + command[2]);
+                                } catch (IOException e) {
+                                    System.out.println("Could not write " + command[2]);
+                                }
+                            }
+                        }
                         System.out.println("");
                     }
                     case "maxNodes" -> {
@@ -380,6 +844,13 @@ public class Main {
                         System.out.println("MAX NODES SET TO: " + command[1] + "\n");
                         maxNodes = Integer.parseInt(command[1]);
                     }
+                    case "timeLimit" -> {
+                        System.out.println("Command #" + numCommands++ + " -> " + command[0] + " " + command[1]);
+                        // 0 switches it off
+                        long millis = Long.parseLong(command[1]);
+                        timeLimit = millis > 0 ? Duration.ofMillis(millis) : null;
+                        System.out.println("TIME LIMIT SET TO: " + (millis > 0 ? millis + " MS" : "NONE") + "\n");
+                    }
                     default ->
                             System.out.println("\n" + "You've entered an incorrect command, try again!");
                 }
@@ -388,13 +859,43 @@ public class Main {
         }
 
         // Catching if file does not exist
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
+            sink.flush();
             System.err.println("Please Input a valid file name");
         }
 
         // Catching if user tries running the program instead of via command line
         catch (ArrayIndexOutOfBoundsException ex) {
+            sink.flush();
             System.err.println("PLEASE RUN METHOD USING COMMAND LINE. EX: 'java Main TestFile.txt'");
         }
+
+        // Whatever ends the run, the output of the commands before it still gets written
+        finally {
+            sink.flush();
+        }
+    }
+
+    /* Splits a command line into its words, without the regex and list String.split goes through ("" for a blank line) */
+    private static String[] tokens(String line) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != ' ' && (i == 0 || line.charAt(i - 1) == ' ')) count++;
+        }
+
+        String[] words = new String[Math.max(count, 1)];
+        words[0] = "";
+        int word = 0;
+        for (int i = 0; i < line.length(); ) {
+            if (line.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+            int end = line.indexOf(' ', i);
+            if (end < 0) end = line.length();
+            words[word++] = line.substring(i, end);
+            i = end;
+        }
+        return words;
     }
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/*
+ *  Search nodes stored as a structure of primitive arrays instead of one Board object each.
+ *  A node is just an index: its packed board, its g, its h and one int linking it to its parent, holding
+ *  the parent's index and the 2 bit direction code of the move that led here (parent << 2 | move).
+ *  That's 17 bytes per node, against a Board object plus its move String, and the arrays grow by doubling.
+ */
+public final class NodePool {
+
+    // Parent index of a root node
+    public static final int ROOT = -1;
+
+    private long[] states;
+    private int[] g;
+    // h of every node, no 8-puzzle heuristic gets anywhere near 127
+    private byte[] estimate;
+    // parent << 2 | move, ROOT << 2 for a root
+    private int[] link;
+    private int size;
+
+    /* Constructor with a starting capacity, the pool grows as needed */
+    public NodePool(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        states = new long[capacity];
+        g = new int[capacity];
+        estimate = new byte[capacity];
+        link = new int[capacity];
+    }
+
+    /*
+     *  Adds a node
+     *  @Param long: The packed board
+     *  @Param int: g, moves from the root
+     *  @Param int: h, the heuristic estimate
+     *  @Param int: Index of the parent node, or ROOT
+     *  @Param int: Direction code of the move from the parent (ignored for a root)
+     *  @Return int: The index of the new node
+     */
+    public int add(long state, int cost, int h, int parent, int direction) {
+        if (size == states.length) {
+            int capacity = size * 2;
+            states = Arrays.copyOf(states, capacity);
+            g = Arrays.copyOf(g, capacity);
+            estimate = Arrays.copyOf(estimate, capacity);
+            link = Arrays.copyOf(link, capacity);
+        }
+        states[size] = state;
+        g[size] = cost;
+        estimate[size] = (byte) h;
+        link[size] = parent << 2 | (direction & 3);
+        return size++;
+    }
+
+    /* Get the packed board of a node */
+    public long state(int node) {
+        return states[node];
+    }
+
+    /* Get the g of a node */
+    public int g(int node) {
+        return g[node];
+    }
+
+    /* Get the h of a node */
+    public int estimate(int node) {
+        return estimate[node];
+    }
+
+    /* Get the parent index of a node, ROOT for a root */
+    public int parent(int node) {
+        return link[node] >> 2;
+    }
+
+    /* Get the direction code of the move that led to a node */
+    public int move(int node) {
+        return link[node] & 3;
+    }
+
+    /* Overwrite the g, parent and move of a node, when a cheaper path to its board turns up */
+    public void relink(int node, int cost, int parent, int direction) {
+        g[node] = cost;
+        link[node] = parent << 2 | (direction & 3);
+    }
+
+    /* Get the number of nodes */
+    public int size() {
+        return size;
+    }
+
+    /* Remove every node, keeping the arrays for the next search */
+    public void clear() {
+        size = 0;
+    }
+
+    /*
+     *  Moves from the root to a node, found by walking the parent indices once.
+     *  Every move costs 1, so the node's g is the length of the path and each move goes straight into its place
+     *  @Param int: The node
+     *  @Return int[]: Direction codes from the root to the node, ready for Board.applyMoves
+     */
+    public int[] path(int node) {
+        int[] moves = new int[g[node]];
+        for (; parent(node) != ROOT; node = parent(node)) {
+            moves[g[node] - 1] = move(node);
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *  Open list of the best-first searches. Nodes are int handles (e.g. an index into a list of Boards)
+ *  queued with their f and g values, poll() returns the handle with the lowest f, ties going to the highest g.
+ *  Two implementations exist, picked per solve: "heap" (binary heap) and "bucket" (buckets indexed by f).
+ */
+public interface OpenList {
+
+    /* Add a node with its evaluation f and depth g */
+    void add(int node, int f, int g);
+
+    /* Remove and return the node with the lowest f (highest g among equal f) */
+    int poll();
+
+    /* Get the lowest f queued, Integer.MAX_VALUE if nothing is queued */
+    int peekF();
+
+    /* Get the number of queued nodes */
+    int size();
+
+    /* Remove every node */
+    void clear();
+
+    /* Check if nothing is queued */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /* Creates the open list named in a solve command, anything that isn't "bucket" gets the heap */
+    static OpenList create(String kind) {
+        return "bucket".equals(kind) ? new BucketOpenList() : new HeapOpenList();
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ *  Packed representation of the 8-puzzle, used by the search methods so that children
+ *  can be generated with plain bit arithmetic instead of cloning Boards and re-parsing Strings.
+ *
+ *  Layout of the long: cell i (0-8, row major) lives in bits 4i..4i+3, where the blank tile is 0
+ *  and tiles are 1-8. The index of the blank tile is cached in bits 36..39 so it never has to be searched for.
+ */
+public final class PackedBoard {
+
+    /* Direction codes, opposite directions only differ in the lowest bit (dir ^ 1) */
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+
+    // Names of the directions, indexed by direction code (same spelling the command file uses)
+    public static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+
+    // Returned by move() when the blank tile can't go in the requested direction
+    public static final long INVALID = -1L;
+
+    // Number of solvable boards, which is also the range of rank()
+    public static final int STATES = 181440;
+    // Solvable orderings of the eight tiles for one blank cell (8! / 2)
+    private static final int TILE_ORDERS = 20160;
+    // FACTORIAL[i] = i!
+    private static final int[] FACTORIAL = {1, 1, 2, 6, 24, 120, 720, 5040, 40320};
+
+    // Bit offset of the cached blank location
+    private static final int BLANK_SHIFT = 36;
+
+    // The solved board "b12 345 678", blank at cell 0 and tile t at cell t
+    public static final long GOAL = 0x876543210L;
+
+    /* Heuristic codes, same names as the "solve A-star h1|h2|h3" command */
+    public static final int H1 = 0;
+    public static final int H2 = 1;
+    public static final int H3 = 2;
+    public static final int H4 = 3;
+    public static final int H5 = 4;
+
+    // NEIGHBORS[blank][direction] is the cell the blank tile moves into, or -1 if it would leave the board
+    private static final int[][] NEIGHBORS = new int[9][4];
+    // MISPLACED[tile][cell] is 1 if the tile doesn't belong in the cell (always 0 for the blank)
+    private static final int[][] MISPLACED = new int[9][9];
+    // MANHATTAN[tile][cell] is the horizontal + vertical offset of the tile from its solved cell (always 0 for the blank)
+    private static final int[][] MANHATTAN = new int[9][9];
+
+    static {
+        for (int cell = 0; cell < 9; cell++) {
+            int row = cell / 3;
+            int col = cell % 3;
+            NEIGHBORS[cell][UP] = row == 0 ? -1 : cell - 3;
+            NEIGHBORS[cell][DOWN] = row == 2 ? -1 : cell + 3;
+            NEIGHBORS[cell][LEFT] = col == 0 ? -1 : cell - 1;
+            NEIGHBORS[cell][RIGHT] = col == 2 ? -1 : cell + 1;
+
+            // Tile t belongs in cell t
+            for (int tile = 1; tile < 9; tile++) {
+                MISPLACED[tile][cell] = tile == cell ? 0 : 1;
+                MANHATTAN[tile][cell] = Math.abs(tile / 3 - row) + Math.abs(tile % 3 - col);
+            }
+        }
+    }
+
+    private PackedBoard() {
+    }
+
+    /* Get the cell the blank tile is in */
+    public static int blank(long state) {
+        return (int) (state >>> BLANK_SHIFT) & 0xF;
+    }
+
+    /* Get the tile (0 for blank) sitting in the given cell */
+    public static int tileAt(long state, int cell) {
+        return (int) (state >>> (cell << 2)) & 0xF;
+    }
+
+    /* Get the cell the blank would move into from the given cell, -1 if the move leaves the board */
+    public static int target(int blank, int direction) {
+        return NEIGHBORS[blank][direction];
+    }
+
+    /* Check whether the blank tile can move in the given direction */
+    public static boolean canMove(long state, int direction) {
+        return NEIGHBORS[blank(state)][direction] >= 0;
+    }
+
+    /*
+     *  Moves the blank tile of a packed board, without allocating anything
+     *  @Param long: The packed board
+     *  @Param int: The direction code the blank tile moves in
+     *  @Return long: The packed child, or INVALID if the blank can't move that way
+     */
+    public static long move(long state, int direction) {
+        int blank = blank(state);
+        int to = NEIGHBORS[blank][direction];
+        if (to < 0) return INVALID;
+
+        // The blank cell holds 0, so moving the tile is just clearing it at "to" and or-ing it in at "blank"
+        long tile = (state >>> (to << 2)) & 0xFL;
+        return (state & ~(0xFL << (to << 2)) & ~(0xFL << BLANK_SHIFT))
+                | (tile << (blank << 2))
+                | ((long) to << BLANK_SHIFT);
+    }
+
+    /* Get the direction that undoes the given one */
+    public static int opposite(int direction) {
+        return direction ^ 1;
+    }
+
+    /* Get the direction code of a move name, -1 if it isn't a move */
+    public static int direction(String name) {
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            if (DIRECTIONS[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /* Packs a board written like "b12 345 678" (spaces are ignored) */
+    public static long fromString(String sequence) {
+        long state = 0;
+        int cell = 0;
+        for (int i = 0; i < sequence.length() && cell < 9; i++) {
+            char c = sequence.charAt(i);
+            // If I have a space (to make the design prettier), ignore it
+            if (c == ' ') continue;
+            if (c == 'b') {
+                state |= (long) cell << BLANK_SHIFT;
+            } else {
+                state |= (long) (c - '0') << (cell << 2);
+            }
+            cell++;
+        }
+        return state;
+    }
+
+    /* Unpacks a board into the "b12 345 678" form */
+    public static String toString(long state) {
+        StringBuilder sb = new StringBuilder(11);
+        for (int cell = 0; cell < 9; cell++) {
+            // If I am at a new row, add a space
+            if (cell != 0 && cell % 3 == 0) sb.append(' ');
+            int tile = tileAt(state, cell);
+            sb.append(tile == 0 ? 'b' : (char) ('0' + tile));
+        }
+        return sb.toString();
+    }
+
+    /*
+     *  Checks whether the goal can be reached. Every move changes the permutation of the tiles by an even
+     *  number of inversions (3x3 board), so the board is solvable exactly when its inversion count is even
+     */
+    public static boolean isSolvable(long state) {
+        int inversions = 0;
+        for (int i = 0; i < 9; i++) {
+            int tile = tileAt(state, i);
+            if (tile == 0) continue;
+            for (int j = i + 1; j < 9; j++) {
+                int other = tileAt(state, j);
+                if (other != 0 && other < tile) inversions++;
+            }
+        }
+        return inversions % 2 == 0;
+    }
+
+    /*
+     *  Perfect hash of a solvable board into 0 .. STATES - 1.
+     *  The tiles read in order (skipping the blank) are ranked by their Lehmer code. Swapping the last two tiles
+     *  flips the parity and moves between ranks 2k and 2k + 1, so exactly one of each such pair is solvable
+     *  and halving the rank loses nothing. The blank cell picks one of nine blocks of TILE_ORDERS ranks.
+     *  @Param long: A solvable packed board
+     *  @Return int: blank cell * TILE_ORDERS + Lehmer rank of the tiles / 2
+     */
+    public static int rank(long state) {
+        int rank = 0;
+        int seen = 0;
+        int position = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int tile = tileAt(state, cell);
+            if (tile == 0) continue;
+            // Lehmer digit = tiles smaller than this one that haven't been used yet
+            int digit = (tile - 1) - Integer.bitCount(seen & ((1 << tile) - 1));
+            rank += digit * FACTORIAL[7 - position++];
+            seen |= 1 << tile;
+        }
+        return blank(state) * TILE_ORDERS + (rank >> 1);
+    }
+
+    /*
+     *  Inverse of rank(), the solvable board with the given index
+     *  @Param int: 0 .. STATES - 1
+     *  @Return long: The packed board
+     */
+    public static long unrank(int index) {
+        int blank = index / TILE_ORDERS;
+        int rank = (index % TILE_ORDERS) << 1;
+
+        // Decode the Lehmer code into the tile order
+        int[] tiles = new int[8];
+        int unused = 0x1FE;
+        for (int position = 0; position < 8; position++) {
+            int digit = rank / FACTORIAL[7 - position];
+            rank %= FACTORIAL[7 - position];
+            int tile = 1;
+            for (int smaller = 0; ; tile++) {
+                if ((unused & (1 << tile)) == 0) continue;
+                if (smaller++ == digit) break;
+            }
+            tiles[position] = tile;
+            unused &= ~(1 << tile);
+        }
+
+        long state = (long) blank << BLANK_SHIFT;
+        for (int cell = 0, position = 0; cell < 9; cell++) {
+            if (cell == blank) continue;
+            state |= (long) tiles[position++] << (cell << 2);
+        }
+
+        // The even rank of the pair might be the unsolvable one, in which case its partner has the last two tiles swapped
+        if (!isSolvable(state)) {
+            int last = blank == 8 ? 7 : 8;
+            int beforeLast = blank >= 7 ? 6 : 7;
+            long a = (state >>> (last << 2)) & 0xFL;
+            long b = (state >>> (beforeLast << 2)) & 0xFL;
+            state &= ~(0xFL << (last << 2)) & ~(0xFL << (beforeLast << 2));
+            state |= (a << (beforeLast << 2)) | (b << (last << 2));
+        }
+        return state;
+    }
+
+    /*
+     *  Mirrors a board across its main diagonal (cell row r, column c goes to row c, column r) and renames
+     *  every tile the same way, so the goal maps to itself. A board and its mirror are equally far from the goal,
+     *  and a solution of one becomes a solution of the other with transposeMove()
+     */
+    public static long transpose(long state) {
+        long mirrored = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int cellT = cell % 3 * 3 + cell / 3;
+            int tile = tileAt(state, cell);
+            // Tile t belongs in cell t, so it's renamed just like a cell (and the blank stays 0)
+            mirrored |= (long) (tile % 3 * 3 + tile / 3) << (cellT << 2);
+            if (tile == 0) mirrored |= (long) cellT << BLANK_SHIFT;
+        }
+        return mirrored;
+    }
+
+    /* Get the move a direction turns into on the transposed board, up <-> left and down <-> right */
+    public static int transposeMove(int direction) {
+        return direction ^ 2;
+    }
+
+    /* Number of tiles (excluding blank) that aren't in their solved cell */
+    public static int misplacedTiles(long state) {
+        return sum(MISPLACED, state);
+    }
+
+    /* Sum of the horizontal + vertical offsets of every tile from its solved cell */
+    public static int manhattanDistance(long state) {
+        return sum(MANHATTAN, state);
+    }
+
+    /* Get the heuristic code of "h1" .. "h5", anything else falls back to Manhattan like getHeuristic always has */
+    public static int heuristicCode(String name) {
+        return switch (name) {
+            case "h1" -> H1;
+            case "h3" -> H3;
+            case "h4" -> H4;
+            case "h5" -> H5;
+            default -> H2;
+        };
+    }
+
+    /* Evaluates a heuristic from scratch */
+    public static int heuristic(int code, long state) {
+        return switch (code) {
+            case H1 -> misplacedTiles(state);
+            case H3 -> PatternDatabase.get().estimate(state);
+            case H4 -> LinearConflict.estimate(state);
+            case H5 -> WalkingDistance.estimate(state);
+            default -> manhattanDistance(state);
+        };
+    }
+
+    /*
+     *  Change of a heuristic caused by one move, so a child's h is its parent's h plus this value.
+     *  Only the tile that slides into the blank cell changes position, so it's two table lookups for h1 and h2.
+     *  @Param int: The heuristic code
+     *  @Param long: The packed parent
+     *  @Param int: A valid direction code for the parent
+     *  @Return int: h(child) - h(parent)
+     */
+    public static int heuristicDelta(int code, long state, int direction) {
+        // Linear conflicts only change in the two lines the tile moves between, on top of its Manhattan change
+        if (code == H4) return tableDelta(MANHATTAN, state, direction) + LinearConflict.delta(state, direction);
+        // The pattern database and walking distance aren't per tile sums, so they're just evaluated again for the child
+        if (code >= H3) return heuristic(code, move(state, direction)) - heuristic(code, state);
+
+        return tableDelta(code == H1 ? MISPLACED : MANHATTAN, state, direction);
+    }
+
+    /*
+     *  Builds a tile x cell table for h1 or h2 measured towards any target board instead of the goal,
+     *  for searches that aim somewhere else (e.g. the backward half of a bidirectional search)
+     *  @Param int: H1 or H2 (anything else gets H2)
+     *  @Param long: The packed target board
+     *  @Return int[][]: table[tile][cell], used with sum() and tableDelta()
+     */
+    public static int[][] heuristicTable(int code, long target) {
+        int[][] table = new int[9][9];
+        for (int home = 0; home < 9; home++) {
+            int tile = tileAt(target, home);
+            if (tile == 0) continue;
+            for (int cell = 0; cell < 9; cell++) {
+                table[tile][cell] = code == H1 ? (cell == home ? 0 : 1)
+                        : Math.abs(home / 3 - cell / 3) + Math.abs(home % 3 - cell % 3);
+            }
+        }
+        return table;
+    }
+
+    /* Change of a tile x cell table sum caused by one move, two lookups since only one tile changes cell */
+    public static int tableDelta(int[][] table, long state, int direction) {
+        int blank = blank(state);
+        int to = NEIGHBORS[blank][direction];
+        int[] row = table[tileAt(state, to)];
+
+        // The tile moves from "to" into the old blank cell
+        return row[blank] - row[to];
+    }
+
+    /* Adds up a tile x cell table over the whole board */
+    public static int sum(int[][] table, long state) {
+        int counter = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            counter += table[(int) (state >>> (cell << 2)) & 0xF][cell];
+        }
+        return counter;
+    }
+}
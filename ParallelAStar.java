@@ -0,0 +1,258 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ *  Hash distributed A* (HDA*) for solving one board on several cores.
+ *  Every board is owned by one worker, picked by hashing its packed state. A worker keeps its own open list and
+ *  closed table, expands its best node and sends each child to the child's owner through a lock-free inbox.
+ *
+ *  Once a goal is found its cost becomes the incumbent, and nodes with f >= incumbent are dropped. The search
+ *  is over when no worker has a node below the incumbent and no node is in flight, and since h is consistent,
+ *  the incumbent is then optimal. Quiet is detected with one counter ("pending") = messages in flight + active
+ *  workers. A worker goes active before it consumes a message and only goes idle once it has no useful node, so
+ *  the counter can only read 0 when nothing is left anywhere.
+ *  Sources: Kishimoto, Fukunaga, Botea, "Scalable, Parallel Best-First Search for Optimal Sequential Planning" (2009)
+ */
+public final class ParallelAStar {
+
+    /* A search node, shared between threads through the inboxes (which safely publish it) */
+    private static final class Node {
+        final long state;
+        final int g;
+        final int f;
+        final Node parent;
+        final int move;
+
+        Node(long state, int g, int f, Node parent, int move) {
+            this.state = state;
+            this.g = g;
+            this.f = f;
+            this.parent = parent;
+            this.move = move;
+        }
+    }
+
+    // Empty polls an idle worker spins for before it starts yielding its core
+    private static final int SPINS_BEFORE_YIELD = 100;
+
+    // Heuristic code (see PackedBoard)
+    private final int heuristic;
+    private final Worker[] workers;
+    // Messages in flight + active workers, the search is over when it reaches 0
+    private final AtomicLong pending = new AtomicLong();
+    // Best goal node found so far
+    private final AtomicReference<Node> incumbent = new AtomicReference<>();
+    // Cost of the incumbent, so workers can prune without dereferencing it
+    private volatile int incumbentCost = Integer.MAX_VALUE;
+    // Set once the search is over (or gave up)
+    private volatile boolean done = false;
+    // Set if a worker's closed table went over its share of maxNodes
+    private volatile boolean exceeded = false;
+    // Set if a worker threw, its exception is reported by the thread and the solve fails
+    private volatile boolean failed = false;
+
+    private ParallelAStar(int heuristic, int threads, int maxNodes) {
+        this.heuristic = heuristic;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i, Math.max(1, maxNodes / threads));
+        }
+    }
+
+    /*
+     *  Method to solve the puzzle with hash distributed A*
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param int: Number of worker threads (at least 1)
+     *  @Param SearchContext: Node limit and counters of this solve
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it wasn't solved
+     */
+    public static Board solve(String heuristic, Board current, int threads, SearchContext context) {
+        if (!PackedBoard.isSolvable(current.getState())) return current;
+
+        threads = Math.max(1, threads);
+        ParallelAStar search = new ParallelAStar(PackedBoard.heuristicCode(heuristic), threads, context.getMaxNodes());
+        long start = current.getState();
+        search.send(new Node(start, 0, PackedBoard.heuristic(search.heuristic, start), null, -1));
+        context.getMetrics().heuristicCall();
+
+        Thread[] threadList = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            threadList[i] = new Thread(search.workers[i], "hda-worker-" + i);
+            threadList[i].start();
+        }
+        for (Thread thread : threadList) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                search.done = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Worker worker : search.workers) {
+            context.visitNodes(worker.expanded);
+            context.getMetrics().add(worker.metrics);
+        }
+
+        if (search.failed) throw new IllegalStateException("An HDA* worker failed, see its stack trace");
+
+        Node goal = search.incumbent.get();
+        if (search.exceeded || goal == null) {
+            // Same convention as A*: push the count over the limit so printOutput reports it
+            if (search.exceeded && !context.exceededMaxNodes()) {
+                context.visitNodes(context.getMaxNodes() + 1 - context.getNodesVisited());
+            }
+            return current;
+        }
+
+        context.setFound(true);
+        int[] moves = new int[goal.g];
+        for (Node node = goal; node.parent != null; node = node.parent) {
+            moves[node.g - 1] = node.move;
+        }
+        return current.applyMoves(moves, goal.g);
+    }
+
+    /* Hands a node to the worker that owns its state */
+    private void send(Node node) {
+        pending.incrementAndGet();
+        workers[(int) ((StateTable.hash(node.state) >>> 1) % workers.length)].inbox.offer(node);
+    }
+
+    /* Records a goal node if it beats the incumbent */
+    private void offerGoal(Node node) {
+        while (true) {
+            Node best = incumbent.get();
+            if (best != null && best.g <= node.g) return;
+            if (incumbent.compareAndSet(best, node)) {
+                incumbentCost = node.g;
+                return;
+            }
+        }
+    }
+
+    /* One worker thread, owning the boards that hash to its id */
+    private final class Worker implements Runnable {
+        private final int id;
+        private final int maxNodes;
+        final ConcurrentLinkedQueue<Node> inbox = new ConcurrentLinkedQueue<>();
+        // Closed table (state -> best g seen) and open list of indices into nodes
+        private final StateTable closed = new StateTable(1 << 12);
+        private final OpenList open = new BucketOpenList();
+        private final List<Node> nodes = new ArrayList<>();
+        // Nodes this worker expanded
+        int expanded = 0;
+        // Counters of this worker, added to the solve's once the threads are joined
+        final SearchMetrics metrics = new SearchMetrics();
+
+        Worker(int id, int maxNodes) {
+            this.id = id;
+            this.maxNodes = maxNodes;
+        }
+
+        @Override
+        public void run() {
+            boolean active = false;
+            // Empty polls in a row, to back off from spinning when there are more workers than cores
+            int idlePolls = 0;
+            boolean finished = false;
+            try {
+                while (!done) {
+                    // Receive. Going active before the message is counted as consumed keeps pending above 0 throughout
+                    Node message;
+                    while ((message = inbox.poll()) != null) {
+                        if (!active) {
+                            pending.incrementAndGet();
+                            active = true;
+                        }
+                        insert(message);
+                        pending.decrementAndGet();
+                    }
+
+                    if (open.peekF() < incumbentCost) {
+                        expand(nodes.get(open.poll()));
+                        idlePolls = 0;
+                        continue;
+                    }
+
+                    // Nothing useful to do, the open list only has nodes the incumbent already beats
+                    if (active) {
+                        active = false;
+                        nodes.clear();
+                        open.clear();
+                        if (pending.decrementAndGet() == 0) done = true;
+                    } else if (pending.get() == 0) {
+                        done = true;
+                    } else if (++idlePolls < SPINS_BEFORE_YIELD) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                finished = true;
+            } finally {
+                // A worker that crashed would leave the others waiting for its messages forever
+                if (!finished) failed = true;
+                done = true;
+            }
+        }
+
+        /* Adds a node to the open list unless this worker already has the state at the same or a lower g */
+        private void insert(Node node) {
+            if (node.f >= incumbentCost) return;
+            int best = closed.get(node.state);
+            if (best != StateTable.MISSING && best <= node.g) {
+                metrics.duplicate();
+                return;
+            }
+
+            closed.put(node.state, node.g);
+            open.add(nodes.size(), node.f, node.g);
+            nodes.add(node);
+            metrics.observeClosed(closed.size());
+            metrics.observeOpen(open.size());
+
+            if (closed.size() > maxNodes) {
+                exceeded = true;
+                done = true;
+            }
+        }
+
+        /* Expands a node, sending its children to their owners */
+        private void expand(Node node) {
+            // A cheaper copy of this state came in after it was queued
+            if (closed.get(node.state) < node.g) {
+                metrics.duplicate();
+                return;
+            }
+            expanded++;
+            metrics.expanded();
+
+            if (node.state == PackedBoard.GOAL) {
+                offerGoal(node);
+                return;
+            }
+
+            int h = node.f - node.g;
+            for (int direction = 0; direction < 4; direction++) {
+                if (direction == PackedBoard.opposite(node.move)) continue;
+                long child = PackedBoard.move(node.state, direction);
+                if (child == PackedBoard.INVALID) continue;
+
+                int childH = h + PackedBoard.heuristicDelta(heuristic, node.state, direction);
+                metrics.heuristicCall();
+                metrics.generated();
+                Node next = new Node(child, node.g + 1, node.g + 1 + childH, node, direction);
+                if (next.f >= incumbentCost) continue;
+
+                // Boards this worker owns skip the inbox
+                if ((int) ((StateTable.hash(child) >>> 1) % workers.length) == id) insert(next);
+                else send(next);
+            }
+        }
+    }
+}
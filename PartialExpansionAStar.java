@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+/*
+ *  Enhanced partial expansion A* (EPEA*). Plain A* queues every child of a node it expands, but on deep boards most of
+ *  them have an f above the solution's and are never taken out of the open list again. Here a node taken out with f
+ *  only gets the children whose f is exactly f, and goes back into the open list with the next larger f among its
+ *  other children (or is done if there's none). Children that aren't needed yet are never made, hashed or queued.
+ *
+ *  For h1 and h2 the change of h of every move comes from an operator table, [blank cell][direction][moved tile],
+ *  so the children of other f values aren't even moved. The other heuristics aren't a sum over tiles, so their
+ *  change is computed per move instead (plain partial expansion), which still keeps the open list small.
+ *  Every partial expansion counts as an expanded node in the metrics, nodes visited only counts the first one.
+ *  With at most 3 new moves per board the 8-puzzle has little surplus to cut: on deep boards about a third fewer
+ *  children are generated and the open list peaks lower, but boards come out of it more than once, so it's no faster.
+ *  Sources: Yoshizumi, Miura, Ishida, "A* with Partial Expansion for Large Branching Factor Problems" (2000);
+ *  Felner et al., "Partial-Expansion A* with Selective Node Generation" (2012)
+ */
+public final class PartialExpansionAStar {
+
+    // Stored f of a node whose children have all been generated
+    private static final int DONE = Integer.MAX_VALUE;
+    // OPERATORS[code][4 * blank + direction][tile] is the change of h1 (code 0) or h2 (code 1) when that tile slides
+    // into the blank
+    private static final byte[][][] OPERATORS = new byte[2][36][9];
+
+    static {
+        for (int code = PackedBoard.H1; code <= PackedBoard.H2; code++) {
+            int[][] table = PackedBoard.heuristicTable(code, PackedBoard.GOAL);
+            for (int blank = 0; blank < 9; blank++) {
+                for (int direction = 0; direction < 4; direction++) {
+                    int to = PackedBoard.target(blank, direction);
+                    if (to < 0) continue;
+                    // The tile leaves "to" and lands on the blank's cell
+                    for (int tile = 1; tile < 9; tile++) {
+                        OPERATORS[code][4 * blank + direction][tile] = (byte) (table[tile][blank] - table[tile][to]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Heuristic code (see PackedBoard) and its operator table, null if it has none
+    private final int heuristic;
+    private final byte[][] operators;
+    private final SearchContext context;
+    private final SearchMetrics metrics;
+    // One node per board, found through the index
+    private final NodePool nodes = new NodePool(1 << 10);
+    private final StateTable index = new StateTable(1 << 10);
+    // stored[node] is the f the node is queued with, it rises with every partial expansion
+    private int[] stored = new int[1 << 10];
+    private final OpenList open;
+
+    private PartialExpansionAStar(int heuristic, String openListKind, SearchContext context) {
+        this.heuristic = heuristic;
+        this.operators = heuristic <= PackedBoard.H2 ? OPERATORS[heuristic] : null;
+        this.context = context;
+        this.metrics = context.getMetrics();
+        this.open = OpenList.create(openListKind);
+    }
+
+    /*
+     *  Method to solve the puzzle with EPEA*, optimal like A*
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param String: heap || bucket, the OpenList implementation ordering the nodes
+     *  @Param SearchContext: Node limit and counters of this solve
+     *  @Return Board: The solved Board (with parents leading back to current), the closest board if it was stopped,
+     *  or current if it wasn't solved
+     */
+    public static Board solve(String heuristic, Board current, String openListKind, SearchContext context) {
+        if (current.misplacedTiles() == 0) {
+            context.setFound(true);
+            return current;
+        }
+
+        PartialExpansionAStar search = new PartialExpansionAStar(PackedBoard.heuristicCode(heuristic), openListKind, context);
+        int h = current.getHeuristic(heuristic);
+        search.metrics.heuristicCall();
+        search.add(current.getState(), 0, h, NodePool.ROOT, 0);
+        return search.run(current);
+    }
+
+    /* Adds a new node and queues it with its own f */
+    private void add(long state, int cost, int h, int parent, int direction) {
+        int node = nodes.add(state, cost, h, parent, direction);
+        index.put(state, node);
+        if (node == stored.length) stored = Arrays.copyOf(stored, node * 2);
+        stored[node] = cost + h;
+        open.add(node, cost + h, cost);
+    }
+
+    /* Takes nodes out of the open list until the goal is, see solve for the result */
+    private Board run(Board current) {
+        // The node with the lowest h (fewest moves on ties), handed back if the search is stopped early
+        int closest = 0;
+
+        while (!open.isEmpty()) {
+            int f = open.peekF();
+            int node = open.poll();
+            // Skip entries left behind by a lower g
+            if (stored[node] != f) {
+                metrics.duplicate();
+                continue;
+            }
+
+            long state = nodes.state(node);
+            int cost = nodes.g(node);
+            int estimate = nodes.estimate(node);
+            if (state == PackedBoard.GOAL) {
+                context.setFound(true);
+                return current.applyMoves(nodes.path(node), cost);
+            }
+
+            // Only the first expansion of a node is a newly visited board
+            if (f == cost + estimate) {
+                context.visitNode();
+                metrics.observeClosed(index.size());
+                if (context.exceededMaxNodes()) break;
+            }
+            if (estimate < nodes.estimate(closest) || (estimate == nodes.estimate(closest) && cost < nodes.g(closest))) {
+                closest = node;
+            }
+            if (context.shouldStop()) {
+                return current.applyMoves(nodes.path(closest), nodes.g(closest));
+            }
+
+            metrics.expanded();
+            int next = expand(node, state, f);
+            stored[node] = next;
+            if (next != DONE) open.add(node, next, cost);
+            metrics.observeOpen(open.size());
+        }
+
+        return current;
+    }
+
+    /*
+     *  Generates the children of a node whose f is the node's stored f
+     *  @Param int: The node
+     *  @Param long: Its board
+     *  @Param int: Its stored f
+     *  @Return int: The lowest f above the stored one among the children, DONE if there's none
+     */
+    private int expand(int node, long state, int f) {
+        int blank = PackedBoard.blank(state);
+        int cost = nodes.g(node) + 1;
+        int estimate = nodes.estimate(node);
+        // The first expansion also takes children below f, which only an inconsistent heuristic (h3) gives
+        boolean first = f == cost - 1 + estimate;
+        int next = DONE;
+        // Undoing the node's own move only leads back to its parent, which is already known with a lower g
+        int back = nodes.parent(node) == NodePool.ROOT ? -1 : PackedBoard.opposite(nodes.move(node));
+
+        for (int direction = 0; direction < 4; direction++) {
+            int to = PackedBoard.target(blank, direction);
+            if (to < 0 || direction == back) continue;
+
+            int delta;
+            if (operators != null) {
+                delta = operators[4 * blank + direction][PackedBoard.tileAt(state, to)];
+            } else {
+                delta = PackedBoard.heuristicDelta(heuristic, state, direction);
+                metrics.heuristicCall();
+            }
+            int childF = cost + estimate + delta;
+            // Children below f were generated by the first expansion, the ones above wait for the next
+            if (childF > f) {
+                next = Math.min(next, childF);
+                continue;
+            }
+            if (childF < f && !first) continue;
+
+            metrics.generated();
+            long child = PackedBoard.move(state, direction);
+            int known = index.get(child);
+            if (known == StateTable.MISSING) {
+                add(child, cost, estimate + delta, node, direction);
+                continue;
+            }
+            if (nodes.g(known) <= cost) {
+                metrics.duplicate();
+                continue;
+            }
+
+            // A cheaper path to a known board starts over as a new node like in A*, so the old one's descendants
+            // keep g matching their own paths. The old node isn't expanded any further
+            stored[known] = DONE;
+            add(child, cost, nodes.estimate(known), node, direction);
+        }
+        return next;
+    }
+}
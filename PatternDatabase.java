@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/*
+ *  Additive disjoint pattern database heuristic (h3). The tiles are split into the patterns {1,2,3,4} and {5,6,7,8},
+ *  and for every placement of a pattern's tiles the table holds the fewest moves OF THOSE TILES needed to solve them.
+ *  Since no move is counted by both tables, the two values can be added and stay admissible (and never below Manhattan).
+ *
+ *  The tables are built once by a backward 0-1 BFS from the goal, saved to a binary file, and memory mapped
+ *  on later runs so the build cost is only paid once.
+ *  Sources: Felner, Korf, Hanan, "Additive Pattern Database Heuristics" (2004)
+ */
+public final class PatternDatabase {
+
+    // File the tables are saved in (working directory)
+    public static final String FILE = "pdb8.bin";
+    // Written at the start of the file, so a stale or foreign file gets rebuilt instead of read
+    private static final int MAGIC = 0x50444238;
+
+    // The disjoint patterns
+    private static final int[][] PATTERNS = {{1, 2, 3, 4}, {5, 6, 7, 8}};
+    // Entries per table, the cells of a pattern's four tiles as a base 9 number
+    private static final int TABLE_SIZE = 9 * 9 * 9 * 9;
+    // DIGIT[tile] is the weight of the tile's cell in its pattern's index (first tile of a pattern is the top digit)
+    private static final int[] DIGIT = {0, 729, 81, 9, 1, 729, 81, 9, 1};
+
+    // Both tables back to back, first pattern at offset 0 and second at TABLE_SIZE
+    private final ByteBuffer tables;
+
+    private PatternDatabase(ByteBuffer tables) {
+        this.tables = tables;
+    }
+
+    /* Get the shared database, loading (or building and saving) it on first use */
+    public static PatternDatabase get() {
+        return Holder.INSTANCE;
+    }
+
+    /* Lazy holder, the JVM makes the first get() load the tables exactly once even with several threads */
+    private static final class Holder {
+        private static final PatternDatabase INSTANCE = load(Path.of(FILE));
+    }
+
+    /*
+     *  Evaluates h3 for a board
+     *  @Param long: The packed board
+     *  @Return int: Sum of the two pattern tables
+     */
+    public int estimate(long state) {
+        // Each tile adds its cell times its base 9 digit weight to its pattern's index
+        int first = 0;
+        int second = 0;
+        for (int cell = 0; cell < 9; cell++) {
+            int tile = PackedBoard.tileAt(state, cell);
+            if (tile == 0) continue;
+            if (tile <= 4) first += cell * DIGIT[tile];
+            else second += cell * DIGIT[tile];
+        }
+        return tables.get(first) + tables.get(TABLE_SIZE + second);
+    }
+
+    /*
+     *  Maps the tables from a file, building and writing the file first if it's missing or not a database
+     *  @Param Path: The database file
+     *  @Return PatternDatabase: The loaded database (kept in memory if the file can't be written)
+     */
+    public static PatternDatabase load(Path file) {
+        try {
+            if (Files.exists(file) && Files.size(file) == 4 + 2L * TABLE_SIZE) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (mapped.getInt(0) == MAGIC) {
+                        // Skip past the magic number so index 0 is the first table entry
+                        return new PatternDatabase(mapped.position(4).slice());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read " + file + ", rebuilding the pattern database");
+        }
+
+        byte[] built = build();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC).flip();
+            channel.write(header);
+            channel.write(ByteBuffer.wrap(built));
+        } catch (IOException e) {
+            System.err.println("Could not save the pattern database to " + file);
+        }
+        return new PatternDatabase(ByteBuffer.wrap(built));
+    }
+
+    /* Builds both tables */
+    private static byte[] build() {
+        byte[] out = new byte[2 * TABLE_SIZE];
+        for (int p = 0; p < PATTERNS.length; p++) {
+            System.arraycopy(buildPattern(PATTERNS[p]), 0, out, p * TABLE_SIZE, TABLE_SIZE);
+        }
+        return out;
+    }
+
+    /*
+     *  Backward 0-1 BFS over the abstract states (cells of the pattern's tiles + the blank's cell) of one pattern.
+     *  Sliding a pattern tile costs 1, sliding any other tile costs 0 since the other table pays for it.
+     *  @Param int[]: The four tiles of the pattern
+     *  @Return byte[]: Fewest pattern moves for each placement, minimized over where the blank is
+     */
+    private static byte[] buildPattern(int[] pattern) {
+        // Abstract state = placement * 9 + blank cell
+        int[] distance = new int[TABLE_SIZE * 9];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+
+        // Tile t starts in cell t and the blank in cell 0
+        int start = (((pattern[0] * 9 + pattern[1]) * 9 + pattern[2]) * 9 + pattern[3]) * 9;
+        distance[start] = 0;
+        ArrayDeque<Integer> deque = new ArrayDeque<>();
+        deque.add(start);
+
+        int[] cells = new int[4];
+        while (!deque.isEmpty()) {
+            int state = deque.poll();
+            int blank = state % 9;
+            int placement = state / 9;
+            for (int i = 3, rest = placement; i >= 0; i--, rest /= 9) {
+                cells[i] = rest % 9;
+            }
+
+            for (int direction = 0; direction < 4; direction++) {
+                int to = PackedBoard.target(blank, direction);
+                if (to < 0) continue;
+
+                // Is the tile sliding into the blank one of ours?
+                int moved = -1;
+                for (int i = 0; i < 4; i++) {
+                    if (cells[i] == to) moved = i;
+                }
+
+                int next;
+                int cost;
+                if (moved < 0) {
+                    next = placement * 9 + to;
+                    cost = 0;
+                } else {
+                    cells[moved] = blank;
+                    next = (((cells[0] * 9 + cells[1]) * 9 + cells[2]) * 9 + cells[3]) * 9 + to;
+                    cells[moved] = to;
+                    cost = 1;
+                }
+
+                if (distance[state] + cost < distance[next]) {
+                    distance[next] = distance[state] + cost;
+                    // Free moves go to the front so the deque stays ordered by distance
+                    if (cost == 0) deque.addFirst(next);
+                    else deque.addLast(next);
+                }
+            }
+        }
+
+        byte[] table = new byte[TABLE_SIZE];
+        for (int placement = 0; placement < TABLE_SIZE; placement++) {
+            int best = Integer.MAX_VALUE;
+            for (int blank = 0; blank < 9; blank++) {
+                best = Math.min(best, distance[placement * 9 + blank]);
+            }
+            // Placements with two tiles in one cell are never reached and never looked up
+            table[placement] = (byte) (best == Integer.MAX_VALUE ? 0 : best);
+        }
+        return table;
+    }
+}
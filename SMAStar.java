@@ -0,0 +1,362 @@
+import java.util.Arrays;
+
+/*
+ *  Simplified memory-bounded A* (SMA*). All nodes live in a pool of a fixed number of slots allocated up front,
+ *  so a solve never holds more than that, no matter how hard the board is.
+ *  Successors are generated one at a time. When the pool is full, the shallowest leaf with the highest f is evicted
+ *  and its parent remembers its f ("forgotten" f), so the parent knows what that subtree costs and regenerates it
+ *  once it's the best option again. When all successors of a node have been generated, its f is backed up to the
+ *  lowest f among them, and on up the tree.
+ *  The solution is optimal as long as its path fits in the pool, whatever else had to be evicted on the way.
+ *  The open list and the leaves are indexed heaps over the slots, so nothing is allocated after the pool itself.
+ *  Sources: Russell, "Efficient memory-bounded search methods" (1992)
+ */
+public final class SMAStar {
+
+    // Successor entries, anything >= 0 is the forgotten f of an evicted successor
+    private static final int NONE = -3;    // off the board, or undoing the node's own move
+    private static final int UNSEEN = -2;  // not generated yet
+    private static final int MEMORY = -1;  // in the pool, see child[]
+    // f of nodes that can't reach the goal without outgrowing the pool
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    // Pool of the last small solve on each thread, reused by the next one when the size matches
+    private static final ThreadLocal<SMAStar> POOLS = new ThreadLocal<>();
+    // Largest pool kept on a thread between solves (about 5 MB), bigger ones are garbage once their solve ends
+    private static final int CACHED_CAPACITY = 1 << 16;
+
+    private final int capacity;
+    // The node pool, indexed by slot
+    private final long[] states;
+    private final int[] g;
+    private final int[] f;
+    private final int[] estimate;
+    private final int[] parent;
+    private final byte[] move;
+    // Number of successors of each slot that are in the pool
+    private final byte[] children;
+    // successor[4 * slot + direction] is NONE, UNSEEN, MEMORY or a forgotten f, child[] has the slot while in MEMORY
+    private final int[] successor;
+    private final int[] child;
+    // Stack of free slots
+    private final int[] free;
+    private int freeCount;
+    // Nodes with a successor that isn't in the pool, lowest f first and deepest first among equal f (expanded next)
+    private final SlotHeap open;
+    // Nodes without any successor in the pool (except the root), the other way around, so the top one is evicted next
+    private final SlotHeap leaves;
+
+    // Heuristic code (see PackedBoard) and counters of the current solve
+    private int heuristic;
+    private SearchMetrics metrics;
+
+    private SMAStar(int capacity) {
+        this.capacity = capacity;
+        states = new long[capacity];
+        g = new int[capacity];
+        f = new int[capacity];
+        estimate = new int[capacity];
+        parent = new int[capacity];
+        move = new byte[capacity];
+        children = new byte[capacity];
+        successor = new int[capacity * 4];
+        child = new int[capacity * 4];
+        free = new int[capacity];
+        open = new SlotHeap(false);
+        leaves = new SlotHeap(true);
+    }
+
+    /* Order of the open list: lower f, then higher g, then lower slot first */
+    private int compare(int a, int b) {
+        return f[a] != f[b] ? Integer.compare(f[a], f[b])
+                : g[a] != g[b] ? Integer.compare(g[b], g[a]) : Integer.compare(a, b);
+    }
+
+    /* Binary heap of slots with each slot's position in it, so a slot can be removed or re-sorted in place */
+    private final class SlotHeap {
+        // Whether the top is the last slot in compare() order instead of the first
+        private final boolean last;
+        private final int[] heap = new int[capacity];
+        // position[slot] is the slot's index in heap, -1 if it isn't in it
+        private final int[] position = new int[capacity];
+        private int size = 0;
+
+        SlotHeap(boolean last) {
+            this.last = last;
+            Arrays.fill(position, -1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int top() {
+            return heap[0];
+        }
+
+        boolean contains(int slot) {
+            return position[slot] >= 0;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                position[heap[i]] = -1;
+            }
+            size = 0;
+        }
+
+        void add(int slot) {
+            heap[size] = slot;
+            position[slot] = size;
+            up(size++);
+        }
+
+        void remove(int slot) {
+            int at = position[slot];
+            position[slot] = -1;
+            if (at == --size) return;
+            heap[at] = heap[size];
+            position[heap[at]] = at;
+            update(heap[at]);
+        }
+
+        /* Moves a slot to its place after its f changed */
+        void update(int slot) {
+            int at = position[slot];
+            up(at);
+            down(position[slot]);
+        }
+
+        /* Whether a belongs above b */
+        private boolean above(int a, int b) {
+            int order = compare(a, b);
+            return last ? order > 0 : order < 0;
+        }
+
+        private void up(int at) {
+            int slot = heap[at];
+            while (at > 0) {
+                int parent = (at - 1) >>> 1;
+                if (!above(slot, heap[parent])) break;
+                heap[at] = heap[parent];
+                position[heap[at]] = at;
+                at = parent;
+            }
+            heap[at] = slot;
+            position[slot] = at;
+        }
+
+        private void down(int at) {
+            int slot = heap[at];
+            while (true) {
+                int next = 2 * at + 1;
+                if (next >= size) break;
+                if (next + 1 < size && above(heap[next + 1], heap[next])) next++;
+                if (!above(heap[next], slot)) break;
+                heap[at] = heap[next];
+                position[heap[at]] = at;
+                at = next;
+            }
+            heap[at] = slot;
+            position[slot] = at;
+        }
+    }
+
+    /*
+     *  Method to solve the puzzle with SMA*
+     *  @Param String: h1 .. h5, the heuristic function being used
+     *  @Param Board: The current state of the board when trying to solve the puzzle
+     *  @Param int: Number of nodes the pool holds (at least 2)
+     *  @Param SearchContext: Counters of this solve, marked as over the node limit if the solution doesn't fit
+     *  @Return Board: The solved Board (with parents leading back to current), or current if it wasn't solved
+     */
+    public static Board solve(String heuristic, Board current, int capacity, SearchContext context) {
+        if (!PackedBoard.isSolvable(current.getState())) return current;
+
+        capacity = Math.max(2, capacity);
+        SMAStar search = POOLS.get();
+        if (search == null || search.capacity != capacity) {
+            search = new SMAStar(capacity);
+            // A pool sized to maxNodes would stay pinned to a long lived thread (e.g. a server worker) for good
+            if (capacity <= CACHED_CAPACITY) POOLS.set(search);
+        }
+
+        int goal = search.search(PackedBoard.heuristicCode(heuristic), current.getState(), context);
+        if (goal < 0) {
+            if (context.isStopped()) return current;
+            // Same convention as A*: push the count over the limit so printOutput reports it
+            context.visitNodes(context.getMaxNodes() + 1 - context.getNodesVisited());
+            return current;
+        }
+
+        context.setFound(true);
+        int[] moves = new int[search.g[goal]];
+        for (int node = goal; search.parent[node] >= 0; node = search.parent[node]) {
+            moves[search.g[node] - 1] = search.move[node];
+        }
+        return current.applyMoves(moves, moves.length);
+    }
+
+    /* Runs the search from a board, returns the slot of the goal or -1 if no solution fits in the pool or it was stopped */
+    private int search(int code, long start, SearchContext context) {
+        this.heuristic = code;
+        this.metrics = context.getMetrics();
+        open.clear();
+        leaves.clear();
+        freeCount = 0;
+        for (int slot = capacity - 1; slot >= 0; slot--) {
+            free[freeCount++] = slot;
+        }
+
+        int h = PackedBoard.heuristic(heuristic, start);
+        metrics.heuristicCall();
+        int root = allocate(start, 0, h, h, -1, -1);
+        open.add(root);
+
+        while (!open.isEmpty()) {
+            int best = open.top();
+            if (f[best] == INFINITE) return -1;
+            if (states[best] == PackedBoard.GOAL) return best;
+            if (context.shouldStop() || !generateNext(best)) return -1;
+            metrics.observeOpen(open.size());
+            metrics.observeClosed(capacity - freeCount);
+        }
+        return -1;
+    }
+
+    /*
+     *  Generates the next successor of a node: one never generated, or else the forgotten one with the lowest f
+     *  @Param int: The slot of the node
+     *  @Return boolean: False if the pool is full and nothing can be evicted (it's a single path, so it can't grow)
+     */
+    private boolean generateNext(int node) {
+        metrics.expanded();
+        int base = node << 2;
+        int direction = -1;
+        for (int d = 0; d < 4; d++) {
+            if (successor[base + d] == UNSEEN) {
+                direction = d;
+                break;
+            }
+        }
+        int forgotten = 0;
+        if (direction < 0) {
+            for (int d = 0; d < 4; d++) {
+                if (successor[base + d] >= 0 && (direction < 0 || successor[base + d] < successor[base + direction])) {
+                    direction = d;
+                }
+            }
+            forgotten = successor[base + direction];
+        }
+
+        long state = PackedBoard.move(states[node], direction);
+        int childG = g[node] + 1;
+        int childH = estimate[node] + PackedBoard.heuristicDelta(heuristic, states[node], direction);
+        metrics.heuristicCall();
+        metrics.generated();
+
+        // A path through a child at the last depth the pool can hold can't go any further
+        int childF = state != PackedBoard.GOAL && childG >= capacity - 1 ? INFINITE
+                : Math.max(Math.max(f[node], childG + childH), forgotten);
+
+        // The node is getting a child, so it can't be evicted to make room for it
+        setLeaf(node, false);
+        if (freeCount == 0 && !evict()) return false;
+
+        int slot = allocate(state, childG, childF, childH, node, direction);
+        successor[base + direction] = MEMORY;
+        child[base + direction] = slot;
+        children[node]++;
+        // Evicting its last child may have made the node a leaf again
+        setLeaf(node, false);
+        setOpen(slot, true);
+        setLeaf(slot, true);
+
+        // The node leaves the open list once all its successors are in the pool
+        boolean missing = false;
+        for (int d = 0; d < 4; d++) {
+            if (successor[base + d] == UNSEEN || successor[base + d] >= 0) missing = true;
+        }
+        if (!missing) setOpen(node, false);
+        backup(node);
+        return true;
+    }
+
+    /* Takes a free slot for a new node */
+    private int allocate(long state, int cost, int total, int h, int from, int direction) {
+        int slot = free[--freeCount];
+        states[slot] = state;
+        g[slot] = cost;
+        f[slot] = total;
+        estimate[slot] = h;
+        parent[slot] = from;
+        move[slot] = (byte) direction;
+        children[slot] = 0;
+        int base = slot << 2;
+        for (int d = 0; d < 4; d++) {
+            // Undoing the move that led here never helps
+            boolean valid = PackedBoard.canMove(state, d) && (from < 0 || d != PackedBoard.opposite(direction));
+            successor[base + d] = valid ? UNSEEN : NONE;
+            child[base + d] = -1;
+        }
+        return slot;
+    }
+
+    /* Evicts the shallowest leaf with the highest f, handing its f to its parent. False if there's no leaf */
+    private boolean evict() {
+        if (leaves.isEmpty()) return false;
+        int leaf = leaves.top();
+        setLeaf(leaf, false);
+        setOpen(leaf, false);
+
+        int from = parent[leaf];
+        int entry = (from << 2) + move[leaf];
+        successor[entry] = f[leaf];
+        child[entry] = -1;
+        free[freeCount++] = leaf;
+
+        // The parent can regenerate it, and might now be a leaf itself
+        setOpen(from, true);
+        if (--children[from] == 0 && parent[from] >= 0) setLeaf(from, true);
+        return true;
+    }
+
+    /* Once every successor of a node has been generated, its f is the lowest of theirs, and so on up the tree */
+    private void backup(int node) {
+        while (node >= 0) {
+            int base = node << 2;
+            int best = INFINITE;
+            for (int d = 0; d < 4; d++) {
+                int entry = successor[base + d];
+                if (entry == UNSEEN) return;
+                if (entry == NONE) continue;
+                best = Math.min(best, entry == MEMORY ? f[child[base + d]] : entry);
+            }
+            if (best == f[node]) return;
+
+            // The heaps are ordered by f, so the node moves to its new place in them
+            f[node] = best;
+            if (open.contains(node)) open.update(node);
+            if (leaves.contains(node)) leaves.update(node);
+            node = parent[node];
+        }
+    }
+
+    /* Adds a node to or removes it from the open list */
+    private void setOpen(int node, boolean member) {
+        if (open.contains(node) == member) return;
+        if (member) open.add(node);
+        else open.remove(node);
+    }
+
+    /* Adds a node to or removes it from the leaves */
+    private void setLeaf(int node, boolean member) {
+        if (leaves.contains(node) == member) return;
+        if (member) leaves.add(node);
+        else leaves.remove(node);
+    }
+}
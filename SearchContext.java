@@ -0,0 +1,128 @@
+import java.time.Duration;
+
+/*
+ *  State of one solve (node limit, nodes visited, whether the goal was found). Every solve gets its own context
+ *  instead of sharing static variables in Main, so several solves can run at the same time on different threads.
+ *  A solve can also have a deadline, and can be cancelled from another thread. The searches poll shouldStop() in
+ *  their expansion loops and hand back the closest board they reached when it says so.
+ */
+public final class SearchContext {
+
+    // shouldStop() only reads the clock once every this many calls (a power of two), a few microseconds of nodes
+    private static final int CLOCK_INTERVAL = 64;
+
+    // Maximum number of nodes this search may consider
+    private final int maxNodes;
+    // System.nanoTime() the search has to finish by, Long.MAX_VALUE for no deadline
+    private final long deadline;
+    // Set by cancel(), possibly from another thread
+    private volatile boolean cancelled = false;
+    // Whether the search stopped early because of the deadline or cancel()
+    private boolean stopped = false;
+    // Calls to shouldStop() so far
+    private int checks = 0;
+    // Total number of nodes visited in this search
+    private int nodesVisited = 0;
+    // Whether the solution has been found
+    private boolean found = false;
+    // How many times longer than optimal the solution may be, 1 for the optimal solvers
+    private double bound = 1;
+    // Detailed counters of this search (nodes expanded / generated, peaks, time, ...)
+    private final SearchMetrics metrics = new SearchMetrics();
+
+    /* Constructor for a new search limited to maxNodes nodes */
+    public SearchContext(int maxNodes) {
+        this(maxNodes, null);
+    }
+
+    /* Constructor for a new search limited to maxNodes nodes and a time limit (null for none) */
+    public SearchContext(int maxNodes, Duration timeLimit) {
+        this.maxNodes = maxNodes;
+        // Limits of a century or more don't fit in nanoseconds next to nanoTime(), they count as none
+        this.deadline = timeLimit == null || timeLimit.toDays() > 36500
+                ? Long.MAX_VALUE : System.nanoTime() + timeLimit.toNanos();
+    }
+
+    /* Get the detailed counters of this search */
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /* Get the maximum number of nodes */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /* Get the number of nodes visited so far */
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /* Count one more visited node */
+    public void visitNode() {
+        nodesVisited++;
+    }
+
+    /* Count several visited nodes at once, e.g. the totals of worker threads */
+    public void visitNodes(int count) {
+        nodesVisited += count;
+    }
+
+    /* Check whether more nodes have been visited than allowed */
+    public boolean exceededMaxNodes() {
+        return nodesVisited > maxNodes;
+    }
+
+    /* Ask the search to stop as soon as it next checks, safe to call from any thread */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /* Check if cancel() has been called */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /*
+     *  Polled by the searches once per expansion: whether to give up because of the deadline or cancel().
+     *  Reading a volatile is cheap, reading the clock less so, which is why it's only done every CLOCK_INTERVAL calls
+     *  @Return boolean: true once the search should stop (and from then on)
+     */
+    public boolean shouldStop() {
+        if (stopped) return true;
+        if (cancelled || ((++checks & (CLOCK_INTERVAL - 1)) == 0 && System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /* Check if the search stopped early because of the deadline or cancel() */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /* Why the search stopped early, for the output */
+    public String stopReason() {
+        return cancelled ? "cancelled" : "time limit reached";
+    }
+
+    /* Check if the solution has been found */
+    public boolean isFound() {
+        return found;
+    }
+
+    /* Mark the solution as found */
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    /* Get the suboptimality bound of the solution */
+    public double getBound() {
+        return bound;
+    }
+
+    /* Set the suboptimality bound of the solution (weighted searches) */
+    public void setBound(double bound) {
+        this.bound = bound;
+    }
+}
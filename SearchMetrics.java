@@ -0,0 +1,153 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/*
+ *  Counters of one solve: nodes expanded (children generated from them), nodes generated, duplicates pruned
+ *  (children or queue entries dropped because the state was already reached as cheaply), peak open list and
+ *  closed set sizes, heuristic evaluations, wall time and bytes allocated by the solving thread.
+ *  Every SearchContext has one, the solvers fill it in and Main.solve times it.
+ */
+public final class SearchMetrics {
+
+    // Column names of toCsv(), in the same order
+    public static final String CSV_HEADER = "solver,expanded,generated,duplicates_pruned,peak_open,peak_closed,"
+            + "wall_millis,nodes_per_second,heuristic_calls,bytes_allocated";
+
+    // Used to read the bytes allocated by the current thread, null if this JVM can't tell
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private long nodesExpanded = 0;
+    private long nodesGenerated = 0;
+    private long duplicatesPruned = 0;
+    private long heuristicCalls = 0;
+    private int peakOpen = 0;
+    private int peakClosed = 0;
+    // Start time and allocation counter when start() was called, then the totals once stop() was called
+    private long startNanos = 0;
+    private long wallNanos = 0;
+    private long startBytes = 0;
+    private long bytesAllocated = 0;
+
+    /* Count an expanded node */
+    public void expanded() {
+        nodesExpanded++;
+    }
+
+    /* Count a generated child */
+    public void generated() {
+        nodesGenerated++;
+    }
+
+    /* Count a child or queue entry dropped as a duplicate */
+    public void duplicate() {
+        duplicatesPruned++;
+    }
+
+    /* Count a heuristic evaluation (full or incremental) */
+    public void heuristicCall() {
+        heuristicCalls++;
+    }
+
+    /* Record the current open list size, keeping the largest */
+    public void observeOpen(int size) {
+        if (size > peakOpen) peakOpen = size;
+    }
+
+    /* Record the current closed set size, keeping the largest */
+    public void observeClosed(int size) {
+        if (size > peakClosed) peakClosed = size;
+    }
+
+    /* Adds another solve's (or worker's) counters to these, peaks are added too since they were held at once */
+    public void add(SearchMetrics other) {
+        nodesExpanded += other.nodesExpanded;
+        nodesGenerated += other.nodesGenerated;
+        duplicatesPruned += other.duplicatesPruned;
+        heuristicCalls += other.heuristicCalls;
+        peakOpen += other.peakOpen;
+        peakClosed += other.peakClosed;
+    }
+
+    /* Start the clock and the allocation counter */
+    public void start() {
+        startBytes = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    /* Stop the clock and the allocation counter, must be called on the thread that called start() */
+    public void stop() {
+        wallNanos = System.nanoTime() - startNanos;
+        bytesAllocated = THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+    }
+
+    /* Get the number of expanded nodes */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /* Get the number of generated children */
+    public long getNodesGenerated() {
+        return nodesGenerated;
+    }
+
+    /* Get the number of duplicates pruned */
+    public long getDuplicatesPruned() {
+        return duplicatesPruned;
+    }
+
+    /* Get the number of heuristic evaluations */
+    public long getHeuristicCalls() {
+        return heuristicCalls;
+    }
+
+    /* Get the largest open list size */
+    public int getPeakOpen() {
+        return peakOpen;
+    }
+
+    /* Get the largest closed set size */
+    public int getPeakClosed() {
+        return peakClosed;
+    }
+
+    /* Get the wall time of the solve */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /* Get the bytes allocated by the solving thread (worker threads of parallel solvers aren't included) */
+    public long getBytesAllocated() {
+        return bytesAllocated;
+    }
+
+    /* Get the expansion rate */
+    public double getNodesPerSecond() {
+        return wallNanos == 0 ? 0 : nodesExpanded * 1e9 / wallNanos;
+    }
+
+    /* One JSON object on a single line, named after the solver */
+    public String toJson(String solver) {
+        return String.format(Locale.ROOT, "{\"solver\":\"%s\",\"expanded\":%d,\"generated\":%d,\"duplicatesPruned\":%d,"
+                        + "\"peakOpen\":%d,\"peakClosed\":%d,\"wallMillis\":%.3f,\"nodesPerSecond\":%.0f,"
+                        + "\"heuristicCalls\":%d,\"bytesAllocated\":%d}",
+                solver, nodesExpanded, nodesGenerated, duplicatesPruned, peakOpen, peakClosed,
+                wallNanos / 1e6, getNodesPerSecond(), heuristicCalls, bytesAllocated);
+    }
+
+    /* One CSV line, columns as in CSV_HEADER */
+    public String toCsv(String solver) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.3f,%.0f,%d,%d",
+                solver, nodesExpanded, nodesGenerated, duplicatesPruned, peakOpen, peakClosed,
+                wallNanos / 1e6, getNodesPerSecond(), heuristicCalls, bytesAllocated);
+    }
+
+    /* Gets the allocation counter if this JVM supports it */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+}
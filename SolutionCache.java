@@ -0,0 +1,128 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ *  Size bounded LRU cache of solutions, keyed by the solver command and the packed board.
+ *  A board and its mirror across the main diagonal (see PackedBoard.transpose) share one entry, stored under
+ *  whichever of the two packs to the smaller long, so solving a mirrored puzzle is a hit with its moves remapped.
+ *  Only optimal solvers are cached: the mirrored moves of an optimal solution are optimal for the mirror too,
+ *  which isn't true of beam search or the weighted searches. Every method is synchronized since batch solves share one cache.
+ */
+public final class SolutionCache {
+
+    // Identifies a cache file
+    private static final int MAGIC = 0x534F4C38;
+
+    /* Cache key, the solver command words after "solve" and the canonical board */
+    private record Key(String solver, long state) {
+    }
+
+    private final int capacity;
+    // Access ordered, so the eldest entry is the least recently used one. Moves are stored as direction codes
+    private final LinkedHashMap<Key, byte[]> entries;
+    private long hits = 0;
+    private long mirroredHits = 0;
+    private long misses = 0;
+
+    /* Constructor for a cache holding at most capacity solutions */
+    public SolutionCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /* Check whether a solver's solutions can be cached (it's optimal) */
+    public static boolean isCacheable(String solver) {
+        return !solver.startsWith("beam") && !solver.startsWith("WA-star") && !solver.startsWith("ARA-star");
+    }
+
+    /*
+     *  Looks a board up, directly or through its mirror
+     *  @Param String: The solver command words after "solve"
+     *  @Param long: The packed board
+     *  @Return int[]: The direction codes solving the board, or null on a miss
+     */
+    public synchronized int[] get(String solver, long state) {
+        long mirror = PackedBoard.transpose(state);
+        byte[] stored = entries.get(new Key(solver, Math.min(state, mirror)));
+        if (stored == null) {
+            misses++;
+            return null;
+        }
+
+        // The entry belongs to whichever of the two boards is smaller, mirror the moves if that isn't this one
+        boolean mirrored = state > mirror;
+        if (mirrored) mirroredHits++;
+        else hits++;
+        int[] moves = new int[stored.length];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = mirrored ? PackedBoard.transposeMove(stored[i]) : stored[i];
+        }
+        return moves;
+    }
+
+    /*
+     *  Stores the solution of a board
+     *  @Param String: The solver command words after "solve"
+     *  @Param long: The packed board
+     *  @Param int[]: The direction codes solving the board
+     */
+    public synchronized void put(String solver, long state, int[] moves) {
+        long mirror = PackedBoard.transpose(state);
+        boolean mirrored = state > mirror;
+        byte[] stored = new byte[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            stored[i] = (byte) (mirrored ? PackedBoard.transposeMove(moves[i]) : moves[i]);
+        }
+        entries.put(new Key(solver, Math.min(state, mirror)), stored);
+    }
+
+    /* One line of statistics: entries, hits (direct and through the mirror), misses and the hit rate */
+    public synchronized String stats() {
+        long lookups = hits + mirroredHits + misses;
+        long found = hits + mirroredHits;
+        return String.format(Locale.ROOT, "%d/%d entries, %d hits (%d mirrored), %d misses, %.1f%% hit rate",
+                entries.size(), capacity, found, mirroredHits, misses, lookups == 0 ? 0 : 100.0 * found / lookups);
+    }
+
+    /* Writes every entry to a file, least recently used first so loading keeps the order */
+    public synchronized void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<Key, byte[]> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey().solver());
+                out.writeLong(entry.getKey().state());
+                out.writeByte(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+    }
+
+    /* Adds the entries of a file written by save(), the file's most recent entries win if it holds too many */
+    public synchronized void load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException(file + " is not a solution cache");
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String solver = in.readUTF();
+                long state = in.readLong();
+                byte[] moves = new byte[in.readUnsignedByte()];
+                in.readFully(moves);
+                entries.put(new Key(solver, state), moves);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ *  Long running solver on a loopback socket, so clients don't pay JVM startup for every solve and share the warm JIT
+ *  and (optionally) the solution cache. Run with
+ *      java SolverServer [port] [threads] [queue] [--cache n] [--maxNodes n] [--timeLimit ms]
+ *
+ *  The protocol is one command per line, the same words as the command file:
+ *      setState b12 345 678   -> the board of this connection
+ *      solve A-star h2        -> solves it (any 3x3 solver of Main.solve)
+ *      quit                   -> closes the connection
+ *  Every line gets one answer line, numbered with the line's position on the connection, e.g.
+ *  "2: 1b2 345 678 -> 1 move: LEFT" (the result line of batch and --quiet), "1: ok" or "3: busy" / "3: error ...".
+ *  Solves run on worker threads, so answers can come back out of order, the number says which line they're for.
+ *
+ *  Each connection's reader thread puts solves in one bounded queue. Workers take whatever is queued (up to BATCH
+ *  solves) at once, solve them and flush every connection they wrote to once per batch instead of once per answer.
+ *  When the queue is full, readers stop reading (so TCP pushes back on the client) for up to BUSY_WAIT and then
+ *  answer "busy" instead of queueing more.
+ *  Solver arguments that size memory or threads (beam width, SMA* pool, HDA* threads) are checked before queueing,
+ *  and external search can't pick its own directory, so one line can't take the server down.
+ */
+public final class SolverServer {
+
+    // Default port, on the loopback address only
+    public static final int PORT = 8642;
+    // Most solves a worker takes from the queue at once
+    private static final int BATCH = 32;
+    // How long a reader waits for room in a full queue before answering "busy"
+    private static final long BUSY_WAIT = 1000;
+    // Largest beam width and number of generations a client may ask for
+    private static final int MAX_BEAM = 10_000;
+    private static final int MAX_GENERATIONS = 100_000;
+
+    /* A solve waiting in the queue */
+    private record Request(Connection connection, int number, Board start, String[] command) {
+    }
+
+    /* One client, answers from several workers go through the same writer */
+    private static final class Connection {
+        private final BufferedWriter out;
+        // Solves queued and not answered yet, the socket stays open until they are
+        private int pending = 0;
+
+        Connection(Socket socket) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        /* Writes an answer line, flushed later by flush() */
+        synchronized void send(String line) {
+            try {
+                out.write(line);
+                out.write('\n');
+            } catch (IOException e) {
+                // The client went away, its reader thread closes the socket
+            }
+        }
+
+        /* Counts a solve about to be queued */
+        synchronized void queued() {
+            pending++;
+        }
+
+        /* Sends the answer of a queued solve (or "busy" if it couldn't be queued after all) */
+        synchronized void answered(String line) {
+            send(line);
+            pending--;
+            notifyAll();
+        }
+
+        /* Waits until every queued solve has been answered */
+        synchronized void awaitAnswers() throws InterruptedException {
+            while (pending > 0) {
+                wait();
+            }
+        }
+
+        synchronized void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                // Same as above
+            }
+        }
+    }
+
+    private final BlockingQueue<Request> queue;
+    private final int maxNodes;
+    private final Duration timeLimit;
+    // Served solves and "busy" answers, for the log line on every new connection
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private SolverServer(int queueSize, int maxNodes, Duration timeLimit) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxNodes = maxNodes;
+        this.timeLimit = timeLimit;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        int cache = 0;
+        int maxNodes = 1_000_000;
+        Duration timeLimit = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cache" -> cache = Integer.parseInt(args[++i]);
+                case "--maxNodes" -> maxNodes = Integer.parseInt(args[++i]);
+                case "--timeLimit" -> timeLimit = Duration.ofMillis(Long.parseLong(args[++i]));
+                default -> positional.add(args[i]);
+            }
+        }
+        int port = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : PORT;
+        int threads = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : Runtime.getRuntime().availableProcessors();
+        int queueSize = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : threads * BATCH * 4;
+        if (cache > 0) Main.setSolutionCache(new SolutionCache(cache));
+
+        new SolverServer(queueSize, maxNodes, timeLimit).serve(port, threads);
+    }
+
+    /* Starts the workers and accepts connections until the process is stopped */
+    private void serve(int port, int threads) throws IOException {
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "solver-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        try (ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            System.out.println("SOLVER SERVER ON PORT " + server.getLocalPort() + " WITH " + threads + " WORKERS AND A QUEUE OF "
+                    + queue.remainingCapacity());
+            while (true) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                System.out.println("CONNECTION FROM " + socket.getRemoteSocketAddress() + " (" + solved.get() + " SOLVED, "
+                        + rejected.get() + " BUSY SO FAR)");
+                Thread reader = new Thread(() -> read(socket), "connection-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            }
+        }
+    }
+
+    /* Reads the commands of one connection, answers setState and errors itself and queues the solves */
+    private void read(Socket socket) {
+        try (socket; BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            Connection connection = new Connection(socket);
+            Board board = new Board();
+            int number = 0;
+            boolean quit = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                number++;
+                String[] command = line.trim().split(" +");
+                switch (command[0]) {
+                    case "setState" -> {
+                        String sequence = line.trim().substring("setState".length()).trim();
+                        if (!isBoard(sequence)) {
+                            connection.send(number + ": error not a 3x3 board: " + sequence);
+                            break;
+                        }
+                        board = new Board(PackedBoard.fromString(sequence));
+                        connection.send(number + ": ok");
+                    }
+                    case "solve" -> {
+                        String problem = check(command);
+                        if (problem != null) {
+                            connection.send(number + ": error " + problem);
+                            break;
+                        }
+                        // Each solve gets its own copy, the connection may set another board meanwhile
+                        Request request = new Request(connection, number, new Board(board.getState()), command);
+                        connection.queued();
+                        if (!queue.offer(request, BUSY_WAIT, TimeUnit.MILLISECONDS)) {
+                            rejected.incrementAndGet();
+                            connection.answered(number + ": busy");
+                        }
+                    }
+                    case "quit" -> quit = true;
+                    default -> connection.send(number + ": error unknown command " + command[0]);
+                }
+                if (quit) break;
+                // Answers given here go out right away, unless more commands are already waiting
+                if (!in.ready()) connection.flush();
+            }
+
+            // Closing (quit or end of input) waits for the solves still on their way
+            connection.awaitAnswers();
+            connection.flush();
+        } catch (IOException | InterruptedException e) {
+            // The client went away
+        }
+    }
+
+    /* Takes batches of solves off the queue until the process is stopped */
+    private void work() {
+        List<Request> batch = new ArrayList<>(BATCH);
+        Map<Connection, Boolean> written = new IdentityHashMap<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH - 1);
+
+            for (Request request : batch) {
+                // The pending count has to drop whatever happens, or the connection never closes
+                String line = request.number() + ": error internal";
+                try {
+                    line = answer(request);
+                } finally {
+                    request.connection().answered(line);
+                    written.put(request.connection(), Boolean.TRUE);
+                }
+            }
+            solved.addAndGet(batch.size());
+            for (Connection connection : written.keySet()) {
+                connection.flush();
+            }
+            batch.clear();
+            written.clear();
+        }
+    }
+
+    /* Solves one request into its answer line, a crash (even an Error) becomes an error answer instead of killing the worker */
+    private String answer(Request request) {
+        Board start = request.start();
+        String prefix = request.number() + ": " + start.getBoard() + " -> ";
+        try {
+            SearchContext context = new SearchContext(maxNodes, timeLimit);
+            Board result = PackedBoard.isSolvable(start.getState()) ? Main.solve(request.command(), start, context) : start;
+            return BatchSolver.resultLine(prefix, start, result, context);
+        } catch (Throwable e) {
+            return request.number() + ": error " + String.join(" ", Arrays.copyOfRange(request.command(), 1,
+                    request.command().length)) + ": " + e;
+        }
+    }
+
+    /*
+     *  Checks the arguments of a solve before it's queued
+     *  @Param String[]: The split solve command
+     *  @Return String: What's wrong with it, or null if it can be queued
+     */
+    private String check(String[] command) {
+        if (command.length < 2) return "no solver";
+        // Main.solve would throw for anything else, but only after it's been queued
+        if (!Main.isSolver(command[1])) return "unknown solver " + command[1];
+        try {
+            switch (command[1]) {
+                case "beam" -> {
+                    if (command.length < 3) return "beam needs a width";
+                    int k = Integer.parseInt(command[2]);
+                    if (k < 1 || k > MAX_BEAM) return "beam width must be 1 to " + MAX_BEAM;
+                    if (command.length > 3 && Character.isDigit(command[3].charAt(0))) {
+                        int generations = Integer.parseInt(command[3]);
+                        if (generations > MAX_GENERATIONS) return "at most " + MAX_GENERATIONS + " generations";
+                    }
+                }
+                case "SMA-star" -> {
+                    if (command.length > 3) {
+                        int pool = Integer.parseInt(command[3]);
+                        if (pool < 2 || pool > maxNodes) return "SMA-star pool must be 2 to " + maxNodes;
+                    }
+                }
+                case "HDA-star" -> {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    if (command.length > 3) {
+                        int threads = Integer.parseInt(command[3]);
+                        if (threads < 1 || threads > cores) return "HDA-star threads must be 1 to " + cores;
+                    }
+                }
+                // The layer files go to a temporary directory, a client doesn't get to write into the server's disk
+                case "external" -> {
+                    if (command.length > 2) return "external takes no directory here";
+                }
+                case "WA-star", "ARA-star" -> {
+                    if (command.length < (command[1].equals("WA-star") ? 3 : 4)) return command[1] + " needs its weight";
+                    double weight = Double.parseDouble(command[2]);
+                    if (!(weight >= 1 && weight <= 100)) return "weight must be 1 to 100";
+                    if (command[1].equals("ARA-star") && Long.parseLong(command[3]) < 0) return "negative time budget";
+                }
+                default -> {
+                    if (command.length < 3 && !command[1].equals("oracle")) return command[1] + " needs a heuristic";
+                }
+            }
+        } catch (NumberFormatException e) {
+            return "not a number: " + e.getMessage();
+        }
+        return null;
+    }
+
+    /* Check that a board has the blank and the tiles 1 to 8 exactly once (spaces are ignored) */
+    private static boolean isBoard(String sequence) {
+        int seen = 0;
+        int cells = 0;
+        for (int i = 0; i < sequence.length(); i++) {
+            char c = sequence.charAt(i);
+            if (c == ' ') continue;
+            int tile = c == 'b' ? 0 : c - '0';
+            if (tile < 0 || tile > 8 || (seen & (1 << tile)) != 0) return false;
+            seen |= 1 << tile;
+            cells++;
+        }
+        return cells == 9;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/*
+ *  Open addressing hash table from packed board states (see PackedBoard) to an int,
+ *  used as the closed set of the searches where the int is the best g found for the state.
+ *  Keys and values live in two primitive arrays, so adding a state never allocates an entry object.
+ *  A packed board is never 0 (the tiles 1-8 are always somewhere), so 0 marks an empty slot.
+ */
+public final class StateTable {
+
+    // Returned by get() when the state has never been added
+    public static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    // Number of states in the table
+    private int size;
+    // Table length minus one, the length is always a power of two
+    private int mask;
+
+    /* Constructor with a starting capacity, the table grows as needed */
+    public StateTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /* Get the number of states in the table */
+    public int size() {
+        return size;
+    }
+
+    /* Get the value stored for a state, or MISSING if the state isn't in the table */
+    public int get(long state) {
+        int slot = slot(state);
+        while (keys[slot] != 0) {
+            if (keys[slot] == state) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /* Check if the state is in the table */
+    public boolean contains(long state) {
+        return get(state) != MISSING;
+    }
+
+    /* Add a state or overwrite the value it already has */
+    public void put(long state, int value) {
+        int slot = slot(state);
+        while (keys[slot] != 0) {
+            if (keys[slot] == state) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = state;
+        values[slot] = value;
+
+        // Keep the load factor at or below one half so probe sequences stay short
+        if (++size * 2 > keys.length) grow();
+    }
+
+    /* Remove every state, keeping the arrays */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    /* Mixes the bits of a state (Stafford variant 13 finalizer), linear probing needs a well spread hash */
+    public static long hash(long state) {
+        long h = state;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /* Get the slot a state's probe sequence starts at */
+    private int slot(long state) {
+        return (int) hash(state) & mask;
+    }
+
+    /* Doubles the arrays and re-adds every state */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/*
+ *  Walking distance heuristic (h5). Looking only at rows, a board becomes a 3x3 matrix: how many tiles of each solved
+ *  row sit in each row, plus the row the blank is in. A vertical move takes one tile from a row next to the blank's
+ *  into the blank's row. The fewest such moves to reach the solved matrix is a lower bound on the vertical moves,
+ *  and it counts tiles that have to make way for each other, which Manhattan can't. The same goes for columns and
+ *  horizontal moves, and the two add up.
+ *  With the blank in the top left, columns and rows look alike (2 tiles in the blank's line, 3 in the others),
+ *  so one table serves both. It's found by a BFS over the few thousand matrices when the class loads.
+ *  Sources: Takahashi, "Walking Distance" (2002), via Korf's overview of sliding tile heuristics
+ */
+public final class WalkingDistance {
+
+    // Matrix of counts (2 bits each, [line][solved line] at bit 2 + 2 * (3 * line + solved line)) and blank line (bits 0-1)
+    private static final int KEYS = 1 << 20;
+    // DISTANCES[key] is the walking distance of a matrix, -1 for keys that aren't a matrix of a real board
+    private static final byte[] DISTANCES = build();
+
+    private WalkingDistance() {
+    }
+
+    /* Key bit of one tile in line "line" that belongs in line "home" */
+    private static int bit(int line, int home) {
+        return 1 << (2 + 2 * (3 * line + home));
+    }
+
+    /* Breadth first search from the solved matrix, every step moves one tile into the blank's line */
+    private static byte[] build() {
+        byte[] distances = new byte[KEYS];
+        Arrays.fill(distances, (byte) -1);
+        int goal = 2 * bit(0, 0) + 3 * bit(1, 1) + 3 * bit(2, 2);
+        int[] queue = new int[KEYS];
+        int head = 0;
+        int tail = 0;
+        distances[goal] = 0;
+        queue[tail++] = goal;
+
+        while (head < tail) {
+            int key = queue[head++];
+            int blank = key & 3;
+            for (int line = blank - 1; line <= blank + 1; line += 2) {
+                if (line < 0 || line > 2) continue;
+                for (int home = 0; home < 3; home++) {
+                    if ((key >>> (2 + 2 * (3 * line + home)) & 3) == 0) continue;
+                    // One tile belonging in "home" moves from "line" into the blank's line, the blank takes its place
+                    int next = (key - bit(line, home) + bit(blank, home)) & ~3 | line;
+                    if (distances[next] >= 0) continue;
+                    distances[next] = (byte) (distances[key] + 1);
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /* Evaluates h5 for a packed board */
+    public static int estimate(long state) {
+        int blank = PackedBoard.blank(state);
+        int rows = blank / 3;
+        int columns = blank % 3;
+        for (int cell = 0; cell < 9; cell++) {
+            int tile = (int) (state >>> (cell << 2)) & 0xF;
+            if (tile == 0) continue;
+            rows += bit(cell / 3, tile / 3);
+            columns += bit(cell % 3, tile % 3);
+        }
+        return DISTANCES[rows] + DISTANCES[columns];
+    }
+}